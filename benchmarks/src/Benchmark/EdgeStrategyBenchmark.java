@@ -0,0 +1,76 @@
+package Benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.EdgeStrategy;
+import Model.Graph;
+import Model.GraphLoadListener;
+
+/**
+ * Compares the edge building strategies: time to build a Graph with each,
+ * and the number of entries each stores for its edges.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see EdgeStrategy
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class EdgeStrategyBenchmark {
+	@Param({"100000"})
+	public int reviews;
+
+	@Param({"clique", "capped:32", "bipartite"})
+	public String edges;
+
+	private File dataset;
+
+	/**
+	 * Entries stored for the edges of the last graph built, reported next to the score
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Stored {
+		public long entries;
+
+		@Setup(Level.Iteration)
+		public void reset(){
+			entries = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		dataset = Fixture.generate(reviews, 42);
+	}
+
+	/**
+	 * Time to build a Graph with the strategy, including parsing and indexes
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Graph build(Stored stored){
+		Graph graph = new Graph(dataset, new GraphLoadListener(){}, EdgeStrategy.parse(edges));
+		stored.entries = graph.storedEdgeEntries();
+		return graph;
+	}
+}
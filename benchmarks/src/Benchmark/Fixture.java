@@ -0,0 +1,80 @@
+package Benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generates synthetic datasets in the labeled record format of foods.txt,
+ * so the benchmarks do not depend on the real dataset being present.
+ * Output depends only on the number of reviews and the seed.
+ *
+ * Product popularity is heavy tailed like the real dataset: most products
+ * have a handful of reviews and a few have hundreds.
+ *
+ * @author Ian
+ * @version 1.0
+ */
+public class Fixture {
+	private static final String[] WORDS = {
+		"the", "a", "and", "is", "it", "this", "coffee", "tea", "taste", "flavor", "dog", "food",
+		"best", "nice", "love", "worst", "sucks", "great", "good", "bad", "price", "order", "box",
+		"GREAT", "LOVE", "really", "very", "would", "buy", "again", "not", "my", "for", "with"
+	};
+
+	/**
+	 * Writes a dataset of the given number of reviews to a temporary file
+	 *
+	 * @param reviews Number of reviews to generate
+	 * @param seed Seed for the random generator
+	 * @return the generated file; deleted when the JVM exits
+	 * @throws IOException if the file cannot be written
+	 */
+	public static File generate(int reviews, long seed) throws IOException {
+		File file = File.createTempFile("fixture-" + reviews + "-", ".txt");
+		file.deleteOnExit();
+		Random random = new Random(seed);
+		int users = Math.max(1, reviews / 4);
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(file))){
+			int written = 0, product = 0;
+			while (written < reviews){
+				// Pareto distributed number of reviews per product
+				int count = Math.min(reviews - written, (int) (1 / Math.pow(1 - random.nextDouble(), 1 / 1.2)));
+				for (int i = 0; i < count; i++, written++){
+					int user = (int) (users * Math.pow(random.nextDouble(), 2));
+					int total = random.nextInt(12), helpful = total == 0 ? 0 : random.nextInt(total + 1);
+					out.write("product/productId: B" + String.format("%09d", product) + "\n");
+					out.write("review/userId: A" + Integer.toString(user, 36).toUpperCase() + "\n");
+					out.write("review/profileName: " + name(user) + "\n");
+					out.write("review/helpfulness: " + helpful + "/" + total + "\n");
+					out.write("review/score: " + (1 + random.nextInt(5)) + ".0\n");
+					out.write("review/time: " + (1100000000 + random.nextInt(250000000)) + "\n");
+					out.write("review/summary: " + words(random, 1 + random.nextInt(8)) + "\n");
+					out.write("review/text: " + words(random, 5 + random.nextInt(150)) + "\n\n");
+				}
+				product++;
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Profile name of a generated user. Several users share each name.
+	 *
+	 * @param user Number of the user
+	 * @return profile name
+	 */
+	public static String name(int user){
+		return "Reviewer " + (user / 3);
+	}
+
+	private static String words(Random random, int count){
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++){
+			sb.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+}
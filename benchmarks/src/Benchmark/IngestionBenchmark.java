@@ -0,0 +1,86 @@
+package Benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.DatasetParser;
+import Model.Graph;
+import Model.ReviewRecord;
+
+/**
+ * Benchmarks reading the dataset: parsing alone, reported per byte, and
+ * building the whole Graph.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see DatasetParser
+ * @see Graph
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class IngestionBenchmark {
+	@Param({"10000", "100000"})
+	public int reviews;
+
+	private File dataset;
+
+	/**
+	 * Bytes parsed, reported by JMH as a rate (bytes/s) next to the score
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Parsed {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset(){
+			bytes = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		dataset = Fixture.generate(reviews, 42);
+	}
+
+	/**
+	 * Parse throughput. The "bytes" secondary result is the parse rate in bytes/s.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public List<ReviewRecord> parse(Parsed parsed) throws IOException {
+		List<ReviewRecord> records = new DatasetParser(dataset, Integer.MAX_VALUE).parse();
+		parsed.bytes += dataset.length();
+		return records;
+	}
+
+	/**
+	 * Time to build a Graph from the file, including parsing, edges and
+	 * indexes. The score at reviews=10000 is the build time per 10k reviews.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Graph build(){
+		return new Graph(dataset);
+	}
+}
@@ -0,0 +1,104 @@
+package Benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Graph;
+import Model.Review;
+import Model.Reviewer;
+import Model.TextIndex;
+
+/**
+ * Latency of the Graph search methods and of the distance between two
+ * reviewers, against a graph built from a generated fixture. Each call
+ * looks up the next key from a fixed, shuffled list of keys that exist.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LookupBenchmark {
+	@Param({"50000"})
+	public int reviews;
+
+	private Graph graph;
+	private String[] userIds, names, productIds;
+	private Reviewer[] reviewers;
+	private int next = 0;
+
+	@Setup
+	public void build() throws IOException {
+		graph = new Graph(Fixture.generate(reviews, 42));
+		int keys = 1024;
+		java.util.Random random = new java.util.Random(7);
+		userIds = new String[keys];
+		names = new String[keys];
+		productIds = new String[keys];
+		reviewers = new Reviewer[keys];
+		for (int i = 0; i < keys; i++){
+			Review r = graph.reviews.get(random.nextInt(graph.reviews.size()));
+			Reviewer reviewer = graph.searchForUserID(r.userId);
+			userIds[i] = r.userId;
+			names[i] = reviewer.profileName.toUpperCase();
+			productIds[i] = graph.reviews.get(random.nextInt(graph.reviews.size())).product.getProductId();
+			reviewers[i] = reviewer;
+		}
+	}
+
+	private int key(){
+		return next = (next + 1) & (userIds.length - 1);
+	}
+
+	@Benchmark
+	public Reviewer searchForUserID(){
+		return graph.searchForUserID(userIds[key()]);
+	}
+
+	@Benchmark
+	public Reviewer searchForUsername(){
+		return graph.searchForUsername(names[key()]);
+	}
+
+	@Benchmark
+	public Review[] searchByProductId(){
+		return graph.searchByProductId(productIds[key()]);
+	}
+
+	@Benchmark
+	public Review[] searchByTextTerms(){
+		return graph.searchByTextQuery("coffee flavor", TextIndex.Mode.ALL);
+	}
+
+	@Benchmark
+	public Review[] searchByTextPhrase(){
+		return graph.searchByTextQuery("really good coffee", TextIndex.Mode.PHRASE);
+	}
+
+	/**
+	 * Breadth-first search between two reviewers
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int distanceBetween(){
+		int i = key();
+		return graph.distanceBetween(reviewers[i], reviewers[(i * 31 + 17) & (reviewers.length - 1)]);
+	}
+}
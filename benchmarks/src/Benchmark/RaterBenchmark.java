@@ -0,0 +1,63 @@
+package Benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Graph;
+import Model.Rater;
+
+/**
+ * Throughput of rating stored reviews with Rater. Run with "-prof gc" to
+ * get the allocation rate; gc.alloc.rate.norm is the bytes allocated per
+ * rating.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Rater
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RaterBenchmark {
+	@Param({"50000"})
+	public int reviews;
+
+	private Graph graph;
+	private int next = 0;
+
+	@Setup
+	public void build() throws IOException {
+		graph = new Graph(Fixture.generate(reviews, 42));
+	}
+
+	@Benchmark
+	public double rate(){
+		next = (next + 7919) % graph.reviews.size();
+		return new Rater(graph, graph.reviews.get(next)).getRating();
+	}
+
+	/**
+	 * A review as submitted from the user interface: not in the graph, and
+	 * with no product or time.
+	 */
+	@Benchmark
+	public double rateSubmitted(){
+		next = (next + 7919) % graph.reviews.size();
+		return new Rater(graph, graph.reviews.get(next).userId, 0.8, "Great coffee", graph.reviews.text(next)).getRating();
+	}
+}
@@ -0,0 +1,121 @@
+package Main;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+
+import Model.Graph;
+import Model.GraphLoadListener;
+import Model.Lexicon;
+import Model.Rater;
+import Model.StreamRater;
+
+/**
+ * Loads the dataset without the user interface, for machines with no
+ * display. Progress and a summary of the loaded graph are written to
+ * standard output, or to standard error when the score command writes
+ * its results to standard output.
+ * 
+ * @author Ian
+ * @version 1.0
+ * @see Main
+ * @see Options
+ *
+ */
+public class Headless 
+{
+	/**
+	 * Loads the graph described by options, restoring it from its snapshot when possible
+	 * 
+	 * @param options Dataset, review limit, lexicon and edge strategy to load with
+	 * @return the loaded Graph
+	 * @throws IOException if the lexicon cannot be read, or the dataset cannot be read and has no snapshot
+	 */
+	static Graph load(Options options) throws IOException
+	{
+		if (options.lexicon != null)
+		{
+			Rater.setLexicon(Lexicon.load(options.lexicon));
+		}
+		Graph g = Graph.open(options.data, options.limit, options.edges, new GraphLoadListener()
+		{
+			private int reported = 0;
+			
+			@Override
+			public void progress(double fraction)
+			{
+				// Report every tenth of the load
+				int tenths = (int) (fraction * 10);
+				if (tenths > reported)
+				{
+					reported = tenths;
+					System.out.println("loading " + tenths * 10 + "%");
+				}
+			}
+		});
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		System.out.println(g.reviews.size() + " reviews, " + g.nodes.size() + " reviewers, " + g.products.size() + " products; heap after collection "
+				+ (runtime.totalMemory() - runtime.freeMemory()) / (1 << 20) + " MB, reviews take " + g.reviews.footprint() / (1 << 20) + " MB");
+		return g;
+	}
+	
+	/**
+	 * Loads the graph, then rates the reviews of the input file or of
+	 * standard input as they arrive, writing one line per review to
+	 * standard output. Everything else printed goes to standard error.
+	 * 
+	 * @param options Dataset options, input, worker threads and window
+	 * @throws IOException if the lexicon, the dataset or the input cannot be read, or the results cannot be written
+	 */
+	static void score(Options options) throws IOException
+	{
+		Writer results = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)));
+		PrintStream stdout = System.out;
+		System.setOut(System.err);
+		try
+		{
+			Graph g = load(options);
+			long start = System.currentTimeMillis();
+			long rated;
+			try (InputStream in = options.input == null ? System.in : new FileInputStream(options.input))
+			{
+				rated = new StreamRater(g, options.threads, options.window).rate(in, results);
+			}
+			long elapsed = Math.max(1, System.currentTimeMillis() - start);
+			System.out.println("rated " + rated + " reviews in " + elapsed + " ms: " + rated * 1000 / elapsed + " reviews/s with "
+					+ options.threads + " threads");
+		}
+		finally
+		{
+			results.flush();
+			System.setOut(stdout);
+		}
+	}
+	
+	/**
+	 * Loads the graph, then answers HTTP requests until the process is
+	 * stopped, printing the latency of each endpoint as it stops
+	 * 
+	 * @param options Dataset options, port and request timeout
+	 * @throws IOException if the lexicon or the dataset cannot be read, or the port cannot be bound
+	 * @see Server
+	 */
+	static void serve(Options options) throws IOException
+	{
+		Graph g = load(options);
+		Server server = new Server(g, options.port, options.timeout);
+		Runtime.getRuntime().addShutdownHook(new Thread(() ->
+		{
+			server.stop();
+			System.out.println("latency " + server.stats());
+		}));
+		server.start();
+	}
+}
@@ -0,0 +1,66 @@
+package Main;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of the most recent requests to one endpoint, kept in a ring
+ * of fixed size so percentiles reflect current load in bounded memory
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Server
+ *
+ */
+public class Latency
+{
+	/**
+	 * Number of recent requests percentiles are computed over
+	 */
+	static final int WINDOW = 10000;
+
+	private final long [] samples = new long [WINDOW];
+	private long count = 0;
+
+	/**
+	 * Records the latency of one request
+	 *
+	 * @param nanos Time taken to answer the request, in nanoseconds
+	 */
+	synchronized void record(long nanos)
+	{
+		samples[(int) (count++ % WINDOW)] = nanos;
+	}
+
+	/**
+	 * Getter for the number of requests recorded since the server started
+	 *
+	 * @return number of requests
+	 */
+	synchronized long count()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns latency percentiles over the most recent requests
+	 *
+	 * @param percentiles Percentiles wanted, between 0 and 100
+	 * @return latency in milliseconds at each percentile; all 0 if there are no requests
+	 */
+	double [] percentiles(double... percentiles)
+	{
+		long [] recent;
+		synchronized (this)
+		{
+			recent = Arrays.copyOf(samples, (int) Math.min(count, WINDOW));
+		}
+		Arrays.sort(recent);
+		double [] millis = new double [percentiles.length];
+		for (int i = 0; i < percentiles.length && recent.length > 0; i++)
+		{
+			int rank = (int) Math.ceil(percentiles[i] / 100 * recent.length) - 1;
+			millis[i] = recent[Math.max(0, Math.min(recent.length - 1, rank))] / 1e6;
+		}
+		return millis;
+	}
+}
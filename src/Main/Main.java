@@ -1,11 +1,55 @@
 package Main;
 
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+
+import Model.Lexicon;
+import Model.Rater;
 import View.UserInterface;
 
 public class Main 
 {
 	public static void main (String [] args)
 	{
-		UserInterface.buildGUI();
+		Options options;
+		try
+		{
+			options = Options.parse(args);
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.err.println(Options.USAGE);
+			System.exit(2);
+			return;
+		}
+		try
+		{
+			if (!options.headless && !GraphicsEnvironment.isHeadless())
+			{
+				if (options.lexicon != null)
+				{
+					Rater.setLexicon(Lexicon.load(options.lexicon));
+				}
+				UserInterface.buildGUI(options.data, options.limit, options.edges);
+			}
+			else if ("score".equals(options.command))
+			{
+				Headless.score(options);
+			}
+			else if ("serve".equals(options.command))
+			{
+				Headless.serve(options);
+			}
+			else
+			{
+				Headless.load(options);
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
 	}
 }
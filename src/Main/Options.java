@@ -0,0 +1,142 @@
+package Main;
+
+import java.io.File;
+
+import Model.EdgeStrategy;
+
+/**
+ * Options given to Main on the command line
+ * 
+ * @author Ian
+ * @version 1.0
+ * @see Main
+ *
+ */
+public class Options 
+{
+	static final String USAGE =
+			"usage: java -jar true-review.jar [--headless] [--data FILE] [--limit N] [--lexicon FILE] [--edges clique|bipartite|capped:N]\n"
+			+ "       java -jar true-review.jar score [--input FILE] [--threads N] [--window N] [dataset options]\n"
+			+ "       java -jar true-review.jar serve [--port N] [--timeout MS] [dataset options]\n"
+			+ "  score           rate the reviews of FILE, or of standard input, in the labeled record format;\n"
+			+ "                  results go to standard output one line per review, and logging to standard error\n"
+			+ "  --input FILE    reviews to rate (default standard input)\n"
+			+ "  --threads N     worker threads rating reviews (default one per core)\n"
+			+ "  --window N      most reviews read but not yet written (default 1024)\n"
+			+ "  serve           answer rating and lookup requests over HTTP; see the README for the endpoints\n"
+			+ "  --port N        port to listen on (default 8080)\n"
+			+ "  --timeout MS    longest time a request may take before it is answered with 503 (default 2000)\n"
+			+ "  --headless      load the dataset without the user interface; implied when there is no display\n"
+			+ "  --data FILE     dataset in the labeled record format (default foods.txt)\n"
+			+ "  --limit N       read at most N records of the dataset (default all)\n"
+			+ "  --lexicon FILE  keyword lexicon to rate reviews with, as read by Lexicon.load\n"
+			+ "  --edges S       how reviewers of the same product are connected (default clique)";
+	
+	/**
+	 * Subcommand given before the options; null to load the dataset only
+	 */
+	String command = null;
+	boolean headless = false;
+	File data = new File("foods.txt");
+	int limit = Integer.MAX_VALUE;
+	File lexicon = null;
+	EdgeStrategy edges = EdgeStrategy.CLIQUE;
+	File input = null;
+	int threads = Runtime.getRuntime().availableProcessors();
+	int window = 1024;
+	int port = 8080;
+	int timeout = 2000;
+	
+	/**
+	 * Reads options from command line arguments
+	 * 
+	 * @param args Arguments given to Main
+	 * @return the options
+	 * @throws IllegalArgumentException if an argument is unknown or its value is missing or malformed
+	 */
+	static Options parse(String[] args)
+	{
+		Options options = new Options();
+		int first = 0;
+		if (args.length > 0 && (args[0].equals("score") || args[0].equals("serve")))
+		{
+			options.command = args[0];
+			options.headless = true;
+			first = 1;
+		}
+		for (int i = first; i < args.length; i++)
+		{
+			String arg = args[i];
+			if (arg.equals("--headless"))
+			{
+				options.headless = true;
+			}
+			else if (arg.equals("--data"))
+			{
+				options.data = new File(value(args, ++i, arg));
+			}
+			else if (arg.equals("--limit"))
+			{
+				options.limit = positive(value(args, ++i, arg), arg);
+			}
+			else if (arg.equals("--lexicon"))
+			{
+				options.lexicon = new File(value(args, ++i, arg));
+			}
+			else if (arg.equals("--edges"))
+			{
+				options.edges = EdgeStrategy.parse(value(args, ++i, arg));
+			}
+			else if ("score".equals(options.command) && arg.equals("--input"))
+			{
+				options.input = new File(value(args, ++i, arg));
+			}
+			else if ("score".equals(options.command) && arg.equals("--threads"))
+			{
+				options.threads = positive(value(args, ++i, arg), arg);
+			}
+			else if ("score".equals(options.command) && arg.equals("--window"))
+			{
+				options.window = positive(value(args, ++i, arg), arg);
+			}
+			else if ("serve".equals(options.command) && arg.equals("--port"))
+			{
+				options.port = positive(value(args, ++i, arg), arg);
+			}
+			else if ("serve".equals(options.command) && arg.equals("--timeout"))
+			{
+				options.timeout = positive(value(args, ++i, arg), arg);
+			}
+			else
+			{
+				throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+		return options;
+	}
+	
+	private static String value(String[] args, int i, String arg)
+	{
+		if (i >= args.length)
+		{
+			throw new IllegalArgumentException(arg + " needs a value");
+		}
+		return args[i];
+	}
+	
+	private static int positive(String value, String arg)
+	{
+		try
+		{
+			int n = Integer.parseInt(value);
+			if (n > 0)
+			{
+				return n;
+			}
+		}
+		catch (NumberFormatException e)
+		{
+		}
+		throw new IllegalArgumentException(arg + " needs a positive number, not " + value);
+	}
+}
@@ -0,0 +1,578 @@
+package Main;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import Model.DatasetParser;
+import Model.Graph;
+import Model.Node;
+import Model.Product;
+import Model.Rater;
+import Model.Review;
+import Model.ReviewRecord;
+import Model.Reviewer;
+
+/**
+ * HTTP service answering rating and lookup requests against a loaded
+ * Graph, built on the HTTP server included in the JDK. Every response is
+ * JSON. Endpoints:
+ *
+ * POST /rate        rates the review in the request body, in the labeled record format
+ * GET  /product     reviews of the product ?id=, ordered by time
+ * GET  /reviewer    the reviewer ?id=, or every reviewer named ?name=
+ * GET  /top         the most accurate ?percent= of reviewers, at most ?limit= of them
+ * GET  /stats       request counts and p50/p99 latency of each endpoint
+ *
+ * Requests are received on virtual threads where the JVM has them, and on
+ * a cached thread pool otherwise, and answered on a pool of one worker
+ * thread per core with a bounded queue. A request arriving while the
+ * queue is full gets a 503 response at once. A request not answered
+ * within the timeout also gets a 503 response, and its worker is
+ * interrupted, which stops the listing endpoints at their next entry.
+ * The graph must not change while serving.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ * @see Rater
+ *
+ */
+public class Server
+{
+	/**
+	 * Largest request body accepted, in bytes
+	 */
+	private static final int MAX_BODY = 1 << 20;
+	/**
+	 * Most entries returned in a list unless ?limit= asks for fewer
+	 */
+	private static final int DEFAULT_LIMIT = 100;
+	/**
+	 * Requests that may wait for a worker, per worker
+	 */
+	private static final int QUEUE_PER_WORKER = 64;
+
+	private final Graph graph;
+	private final HttpServer http;
+	private final ExecutorService executor;
+	/**
+	 * Bounded pool answering the endpoints, apart from the executor receiving requests
+	 */
+	private final ThreadPoolExecutor workers;
+	private final long timeoutMillis;
+	private final Map<String, Latency> latencies = new LinkedHashMap<String, Latency>();
+
+	/**
+	 * An answer to a request: its status and JSON body
+	 */
+	private static class Response
+	{
+		final int status;
+		final String json;
+
+		Response(int status, String json)
+		{
+			this.status = status;
+			this.json = json;
+		}
+
+		static Response error(int status, String message)
+		{
+			return new Response(status, "{\"error\":" + quote(message) + "}");
+		}
+	}
+
+	/**
+	 * A request that cannot be answered, with the status to answer it with
+	 */
+	private static class RequestException extends Exception
+	{
+		private static final long serialVersionUID = 1L;
+		final int status;
+
+		RequestException(int status, String message)
+		{
+			super(message);
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Answers one endpoint
+	 */
+	private interface Endpoint
+	{
+		Response answer(HttpExchange exchange, Map<String, String> query) throws Exception;
+	}
+
+	/**
+	 * Constructor for a server, not yet started
+	 *
+	 * @param graph Loaded graph to answer requests from
+	 * @param port Port to listen on; 0 for any free port
+	 * @param timeoutMillis Longest time a request may take before it is answered with 503
+	 * @throws IOException if the port cannot be bound
+	 */
+	public Server(Graph graph, int port, long timeoutMillis) throws IOException
+	{
+		this.graph = graph;
+		this.timeoutMillis = timeoutMillis;
+		this.executor = newExecutor();
+		this.workers = newWorkers();
+		this.http = HttpServer.create(new InetSocketAddress(port), 0);
+		http.setExecutor(executor);
+		route("/rate", "POST", this::rate);
+		route("/product", "GET", this::product);
+		route("/reviewer", "GET", this::reviewer);
+		route("/top", "GET", this::top);
+		route("/stats", "GET", (exchange, query) -> new Response(200, stats()));
+		http.createContext("/", exchange -> send(exchange, Response.error(404, "No such endpoint " + exchange.getRequestURI().getPath())));
+	}
+
+	/**
+	 * Creates a virtual thread per task executor through reflection, as the
+	 * project builds for Java 8, or a cached thread pool if there are none
+	 *
+	 * @return executor receiving requests
+	 */
+	private static ExecutorService newExecutor()
+	{
+		try
+		{
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			ExecutorService executor = (ExecutorService) virtual.invoke(null);
+			System.out.println("handling requests on virtual threads");
+			return executor;
+		}
+		catch (ReflectiveOperationException e)
+		{
+			System.out.println("virtual threads are not available; handling requests on a thread pool");
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Creates the pool answering the endpoints: one thread per core, as the
+	 * endpoints keep the processor busy, and a bounded queue that rejects
+	 * requests beyond it
+	 *
+	 * @return pool for the endpoints
+	 */
+	private static ThreadPoolExecutor newWorkers()
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(threads * QUEUE_PER_WORKER), runnable ->
+				{
+					Thread thread = new Thread(runnable, "Server worker");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Starts accepting requests
+	 */
+	public void start()
+	{
+		http.start();
+		System.out.println("serving on port " + port());
+	}
+
+	/**
+	 * Stops accepting requests, waiting up to a second for those being answered
+	 */
+	public void stop()
+	{
+		http.stop(1);
+		workers.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Getter for the port the server listens on
+	 *
+	 * @return port number
+	 */
+	public int port()
+	{
+		return http.getAddress().getPort();
+	}
+
+	/**
+	 * Registers an endpoint, answering it within the timeout and recording its latency
+	 */
+	private void route(String path, String method, Endpoint endpoint)
+	{
+		Latency latency = new Latency();
+		latencies.put(path, latency);
+		http.createContext(path, exchange ->
+		{
+			long start = System.nanoTime();
+			Response response;
+			if (!exchange.getRequestURI().getPath().equals(path))
+			{
+				response = Response.error(404, "No such endpoint " + exchange.getRequestURI().getPath());
+			}
+			else if (!exchange.getRequestMethod().equals(method))
+			{
+				exchange.getResponseHeaders().set("Allow", method);
+				response = Response.error(405, path + " takes " + method + " requests");
+			}
+			else
+			{
+				response = answer(endpoint, exchange);
+			}
+			try
+			{
+				send(exchange, response);
+			}
+			finally
+			{
+				latency.record(System.nanoTime() - start);
+			}
+		});
+	}
+
+	/**
+	 * Answers a request on a worker, giving up and interrupting the worker
+	 * after the timeout; answers 503 at once if no worker can take it
+	 */
+	private Response answer(Endpoint endpoint, HttpExchange exchange)
+	{
+		Future<Response> answer;
+		try
+		{
+			Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+			answer = workers.submit(() -> endpoint.answer(exchange, query));
+		}
+		catch (RequestException e)
+		{
+			return Response.error(e.status, e.getMessage());
+		}
+		catch (RejectedExecutionException e)
+		{
+			return Response.error(503, "Server is busy");
+		}
+		try
+		{
+			return answer.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException e)
+		{
+			answer.cancel(true);
+			return Response.error(503, "Request timed out after " + timeoutMillis + " ms");
+		}
+		catch (InterruptedException e)
+		{
+			answer.cancel(true);
+			Thread.currentThread().interrupt();
+			return Response.error(503, "Server is stopping");
+		}
+		catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof RequestException)
+			{
+				RequestException cause = (RequestException) e.getCause();
+				return Response.error(cause.status, cause.getMessage());
+			}
+			System.out.println("Failed to answer " + exchange.getRequestURI() + ": " + e.getCause());
+			return Response.error(500, String.valueOf(e.getCause()));
+		}
+	}
+
+	private static void send(HttpExchange exchange, Response response) throws IOException
+	{
+		byte [] body = response.json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(response.status, body.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Rates the review in the request body
+	 */
+	private Response rate(HttpExchange exchange, Map<String, String> query) throws IOException, RequestException
+	{
+		List<ReviewRecord> records = new ArrayList<ReviewRecord>();
+		DatasetParser.read(new ByteArrayInputStream(body(exchange)), records::add);
+		if (records.size() != 1 || records.get(0) == null)
+		{
+			throw new RequestException(400, "Body must hold one well formed review in the labeled record format");
+		}
+		ReviewRecord record = records.get(0);
+		Review review = new Review(graph.products.get(record.productId), record.userId, record.helpfulness, record.score,
+				record.time, record.summary, record.text);
+		Rater rater = new Rater(graph, review);
+		StringBuilder json = new StringBuilder("{\"rating\":").append(number(rater.getRating())).append(",\"contributions\":{");
+		boolean first = true;
+		for (Map.Entry<String, Double> e : rater.getContributions().entrySet())
+		{
+			json.append(first ? "" : ",").append(quote(e.getKey())).append(':').append(number(e.getValue()));
+			first = false;
+		}
+		return new Response(200, json.append("}}").toString());
+	}
+
+	/**
+	 * Lists the reviews of a product
+	 */
+	private Response product(HttpExchange exchange, Map<String, String> query) throws RequestException, InterruptedException
+	{
+		String id = required(query, "id");
+		Product product = graph.products.get(id);
+		if (product == null)
+		{
+			throw new RequestException(404, "No product " + id);
+		}
+		Review [] reviews = graph.searchByProductId(id);
+		int limit = limit(query);
+		StringBuilder json = new StringBuilder("{\"productId\":").append(quote(id))
+				.append(",\"average\":").append(number(product.getAverage()))
+				.append(",\"numReviews\":").append(reviews.length)
+				.append(",\"reviews\":[");
+		for (int i = 0; i < reviews.length && i < limit; i++)
+		{
+			checkCancelled();
+			Review r = reviews[i];
+			json.append(i == 0 ? "" : ",").append("{\"userId\":").append(quote(r.userId))
+					.append(",\"score\":").append(r.score)
+					.append(",\"helpfulness\":").append(number(r.helpfulness))
+					.append(",\"time\":").append(r.time)
+					.append(",\"summary\":").append(quote(r.getSummary()))
+					.append(",\"text\":").append(quote(r.getText())).append('}');
+		}
+		return new Response(200, json.append("]}").toString());
+	}
+
+	/**
+	 * Finds a reviewer by ID, or every reviewer with a name
+	 */
+	private Response reviewer(HttpExchange exchange, Map<String, String> query) throws RequestException, InterruptedException
+	{
+		Reviewer [] found;
+		if (query.containsKey("id"))
+		{
+			Reviewer r = graph.searchForUserID(query.get("id"));
+			found = r == null ? new Reviewer [0] : new Reviewer [] {r};
+		}
+		else
+		{
+			found = graph.searchForUsernames(required(query, "name"));
+		}
+		if (found.length == 0)
+		{
+			throw new RequestException(404, "No such reviewer");
+		}
+		StringBuilder json = new StringBuilder("{\"reviewers\":[");
+		for (int i = 0; i < found.length && i < limit(query); i++)
+		{
+			checkCancelled();
+			Reviewer r = found[i];
+			Node node = graph.getNode(r);
+			json.append(i == 0 ? "" : ",").append("{\"userId\":").append(quote(r.userId))
+					.append(",\"profileName\":").append(quote(r.profileName))
+					.append(",\"accuracy\":").append(number(r.accuracy))
+					.append(",\"rank\":").append(graph.rankOf(r))
+					.append(",\"connectionPercentile\":").append(number(graph.connectionPercentile(node)))
+					.append(",\"numReviews\":").append(r.getNumReviews()).append('}');
+		}
+		return new Response(200, json.append("]}").toString());
+	}
+
+	/**
+	 * Lists the most accurate reviewers
+	 */
+	private Response top(HttpExchange exchange, Map<String, String> query) throws RequestException, InterruptedException
+	{
+		int percent = integer(query, "percent", 1);
+		if (percent > 100)
+		{
+			throw new RequestException(400, "percent must be between 1 and 100");
+		}
+		Reviewer [] top = graph.topPercentileReviewers(percent);
+		int limit = limit(query);
+		StringBuilder json = new StringBuilder("{\"percent\":").append(percent).append(",\"count\":").append(top.length).append(",\"reviewers\":[");
+		for (int i = 0; i < top.length && i < limit; i++)
+		{
+			checkCancelled();
+			json.append(i == 0 ? "" : ",").append("{\"userId\":").append(quote(top[i].userId))
+					.append(",\"profileName\":").append(quote(top[i].profileName))
+					.append(",\"accuracy\":").append(number(top[i].accuracy)).append('}');
+		}
+		return new Response(200, json.append("]}").toString());
+	}
+
+	/**
+	 * Stops an endpoint whose request was given up on, such as after its timeout
+	 *
+	 * @throws InterruptedException if the worker was interrupted
+	 */
+	private static void checkCancelled() throws InterruptedException
+	{
+		if (Thread.interrupted())
+		{
+			throw new InterruptedException("Request cancelled");
+		}
+	}
+
+	/**
+	 * Describes the requests answered by each endpoint and their latency
+	 *
+	 * @return JSON object with the count, p50 and p99 in milliseconds of each endpoint
+	 */
+	public String stats()
+	{
+		StringBuilder json = new StringBuilder("{");
+		boolean first = true;
+		for (Map.Entry<String, Latency> e : latencies.entrySet())
+		{
+			double [] p = e.getValue().percentiles(50, 99);
+			json.append(first ? "" : ",").append(quote(e.getKey())).append(":{\"requests\":").append(e.getValue().count())
+					.append(",\"p50Millis\":").append(number(p[0])).append(",\"p99Millis\":").append(number(p[1])).append('}');
+			first = false;
+		}
+		return json.append('}').toString();
+	}
+
+	private static byte [] body(HttpExchange exchange) throws IOException, RequestException
+	{
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte [] buf = new byte [8192];
+		try (InputStream in = exchange.getRequestBody())
+		{
+			for (int n; (n = in.read(buf)) >= 0;)
+			{
+				body.write(buf, 0, n);
+				if (body.size() > MAX_BODY)
+				{
+					throw new RequestException(413, "Body is larger than " + MAX_BODY + " bytes");
+				}
+			}
+		}
+		return body.toByteArray();
+	}
+
+	private static Map<String, String> query(String raw) throws RequestException
+	{
+		Map<String, String> query = new HashMap<String, String>();
+		if (raw == null || raw.isEmpty())
+		{
+			return query;
+		}
+		try
+		{
+			for (String pair : raw.split("&"))
+			{
+				int eq = pair.indexOf('=');
+				String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+				query.put(key, eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+			}
+		}
+		catch (IllegalArgumentException | UnsupportedEncodingException e)
+		{
+			throw new RequestException(400, "Malformed query: " + e.getMessage());
+		}
+		return query;
+	}
+
+	private static String required(Map<String, String> query, String name) throws RequestException
+	{
+		String value = query.get(name);
+		if (value == null || value.isEmpty())
+		{
+			throw new RequestException(400, "Missing ?" + name + "=");
+		}
+		return value;
+	}
+
+	private static int limit(Map<String, String> query) throws RequestException
+	{
+		return query.containsKey("limit") ? integer(query, "limit", 0) : DEFAULT_LIMIT;
+	}
+
+	/**
+	 * Reads a whole number parameter of at least min
+	 */
+	private static int integer(Map<String, String> query, String name, int min) throws RequestException
+	{
+		String value = required(query, name);
+		try
+		{
+			int n = Integer.parseInt(value);
+			if (n >= min)
+			{
+				return n;
+			}
+		}
+		catch (NumberFormatException e)
+		{
+		}
+		throw new RequestException(400, name + " must be a whole number of at least " + min + ", not " + value);
+	}
+
+	/**
+	 * Writes a number as JSON, which has no NaN or infinity
+	 */
+	private static String number(double value)
+	{
+		return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+	}
+
+	/**
+	 * Writes a string as a JSON string literal
+	 */
+	static String quote(String value)
+	{
+		if (value == null)
+		{
+			return "null";
+		}
+		StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+			{
+				json.append('\\').append(c);
+			}
+			else if (c < 0x20)
+			{
+				json.append(String.format("\\u%04x", (int) c));
+			}
+			else
+			{
+				json.append(c);
+			}
+		}
+		return json.append('"').toString();
+	}
+}
@@ -0,0 +1,99 @@
+package Model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Recomputes the score aggregates of every product and the accuracy of
+ * every reviewer once all reviews are known. Reviews in no ReviewStore
+ * are counted as Product.setAggregates and Reviewer.setAccuracy do. The columns of the review
+ * store are grouped by product and by reviewer with a counting
+ * sort, and each group is then summed in parallel. Every reviewer's
+ * deviations are summed in review order, so the result does not depend
+ * on the number of threads.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ * @see Reviewer
+ *
+ */
+class AccuracyPass {
+	private final ReviewStore reviews;
+	private final Adjacency adjacency;
+	private final int productCount;
+
+	/**
+	 * Constructor for a pass over the given reviews
+	 *
+	 * @param reviews All reviews of the graph
+	 * @param adjacency Adjacency holding every reviewer's Node
+	 * @param productCount Number of products; every Product.ordinal is below it
+	 */
+	AccuracyPass(ReviewStore reviews, Adjacency adjacency, int productCount){
+		this.reviews = reviews;
+		this.adjacency = adjacency;
+		this.productCount = productCount;
+	}
+
+	/**
+	 * Runs the pass, updating every Product and Reviewer in place
+	 */
+	void run(){
+		int n = reviews.size(), reviewerCount = adjacency.size();
+		int[] product = new int[n], reviewer = new int[n], score = new int[n];
+		Product[] products = new Product[productCount];
+		IntStream.range(0, n).parallel().forEach(i -> {
+			product[i] = reviews.productOrdinal(i);
+			reviewer[i] = reviews.reviewerIndex(i);
+			score[i] = reviews.score(i);
+			products[product[i]] = reviews.product(i);
+		});
+
+		// Product averages
+		int[] byProduct = new int[n], productStart = group(product, productCount, byProduct);
+		double[] average = new double[productCount];
+		IntStream.range(0, productCount).parallel().forEach(p -> {
+			int sum = 0;
+			for (int k = productStart[p]; k < productStart[p+1]; k++){
+				sum += score[byProduct[k]];
+			}
+			if (products[p] != null){
+				products[p].setAggregates(sum, productStart[p+1] - productStart[p]);
+				average[p] = products[p].getAverage();
+			}
+		});
+
+		// Reviewer accuracy against the final averages
+		int[] byReviewer = new int[n], reviewerStart = group(reviewer, reviewerCount, byReviewer);
+		IntStream.range(0, reviewerCount).parallel().forEach(v -> {
+			double sum = 0;
+			for (int k = reviewerStart[v]; k < reviewerStart[v+1]; k++){
+				int i = byReviewer[k];
+				sum += Math.abs(score[i] - average[product[i]]);
+			}
+			adjacency.node(v).value.setAccuracy(sum, reviewerStart[v+1] - reviewerStart[v]);
+		});
+	}
+
+	/**
+	 * Stable counting sort of review positions by key
+	 *
+	 * @param key Key of each review
+	 * @param keys Number of distinct keys; every key is below it
+	 * @param sorted Receives the review positions ordered by key, then by position
+	 * @return start of each key's run in sorted, followed by the number of reviews
+	 */
+	private static int[] group(int[] key, int keys, int[] sorted){
+		int[] start = new int[keys + 1];
+		for (int k : key){
+			start[k + 1]++;
+		}
+		Arrays.parallelPrefix(start, Integer::sum);
+		int[] next = Arrays.copyOf(start, keys);
+		for (int i = 0; i < key.length; i++){
+			sorted[next[key[i]]++] = i;
+		}
+		return start;
+	}
+}
@@ -0,0 +1,327 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Weighted adjacencies of every Node in a Graph, addressed by node index.
+ * While the graph is being built each node's edges are counted in a hash
+ * map; once it is built they are frozen into compressed sparse row form:
+ * node v's neighbors are neighbors[offsets[v]] to neighbors[offsets[v+1]-1],
+ * sorted ascending, with the matching edge weights in weights.
+ *
+ * Edges added after freezing go into a sorted copy of the node's row,
+ * which takes precedence over the compressed arrays until compact merges
+ * the copies back in.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Node
+ * @see IntIntMap
+ *
+ */
+public class Adjacency {
+	private Node[] nodes = new Node[16];
+	private int size = 0;
+	/**
+	 * Edge weights per node while building. Null once frozen.
+	 */
+	private IntIntMap[] building = new IntIntMap[16];
+	/**
+	 * Compressed sparse row arrays. Null until frozen.
+	 */
+	int[] offsets, neighbors, weights;
+	/**
+	 * Rows changed since the last compaction, by node index. Null until an
+	 * edge is added to a frozen adjacency.
+	 */
+	private Row[] patches;
+	private int patchCount = 0;
+
+	/**
+	 * Constructs an empty adjacency to be built edge by edge
+	 */
+	public Adjacency(){
+	}
+
+	/**
+	 * Constructs an adjacency for a known number of nodes whose edges will
+	 * be restored in frozen form
+	 *
+	 * @param nodeCount number of nodes that will be added
+	 * @see restore
+	 */
+	Adjacency(int nodeCount){
+		nodes = new Node[nodeCount];
+		building = null;
+	}
+
+	/**
+	 * Registers a node and gives it the next free index
+	 *
+	 * @param n Node being added to the graph
+	 * @return index of n
+	 */
+	int add(Node n){
+		if (size == nodes.length){
+			nodes = Arrays.copyOf(nodes, Math.max(16, size * 2));
+			if (building != null){
+				building = Arrays.copyOf(building, nodes.length);
+			}
+		}
+		nodes[size] = n;
+		return size++;
+	}
+
+	/**
+	 * Adds one to the weight of the edge from node "from" to node "to"
+	 *
+	 * @param from index of the first node
+	 * @param to index of the second node
+	 */
+	public void increment(int from, int to){
+		if (building == null){
+			patch(from).increment(to);
+			return;
+		}
+		if (building[from] == null){
+			building[from] = new IntIntMap();
+		}
+		building[from].increment(to);
+	}
+
+	/**
+	 * Converts the per node hash maps into compressed sparse row arrays.
+	 * No edges may be added afterwards.
+	 */
+	public void freeze(){
+		if (building == null){
+			return;
+		}
+		offsets = new int[size + 1];
+		for (int v = 0; v < size; v++){
+			offsets[v+1] = offsets[v] + (building[v] == null ? 0 : building[v].size());
+		}
+		neighbors = new int[offsets[size]];
+		weights = new int[offsets[size]];
+		for (int v = 0; v < size; v++){
+			if (building[v] != null){
+				building[v].copySorted(neighbors, weights, offsets[v]);
+			}
+		}
+		building = null;
+		nodes = Arrays.copyOf(nodes, size);
+	}
+
+	/**
+	 * Merges the rows changed since freezing back into the compressed
+	 * sparse row arrays
+	 */
+	public void compact(){
+		checkFrozen();
+		if (patchCount == 0 && offsets.length == size + 1){
+			return;
+		}
+		int[] offsets = new int[size + 1];
+		for (int v = 0; v < size; v++){
+			offsets[v+1] = offsets[v] + degree(v);
+		}
+		int[] neighbors = new int[offsets[size]], weights = new int[offsets[size]];
+		for (int v = 0; v < size; v++){
+			Row row = patched(v);
+			if (row != null){
+				System.arraycopy(row.neighbors, 0, neighbors, offsets[v], row.size);
+				System.arraycopy(row.weights, 0, weights, offsets[v], row.size);
+			} else if (v < this.offsets.length - 1){
+				System.arraycopy(this.neighbors, this.offsets[v], neighbors, offsets[v], degree(v));
+				System.arraycopy(this.weights, this.offsets[v], weights, offsets[v], degree(v));
+			}
+		}
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.weights = weights;
+		patches = null;
+		patchCount = 0;
+	}
+
+	/**
+	 * Sets the compressed sparse row arrays of an adjacency created for restoring
+	 *
+	 * @param offsets start of each node's row, followed by the number of entries
+	 * @param neighbors neighbor indexes of all rows
+	 * @param weights edge weights of all rows
+	 */
+	void restore(int[] offsets, int[] neighbors, int[] weights){
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.weights = weights;
+	}
+
+	/**
+	 * Getter for the number of nodes
+	 *
+	 * @return number of nodes
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Getter for the Node at an index
+	 *
+	 * @param v index of the node
+	 * @return Node at index v
+	 */
+	public Node node(int v){
+		return nodes[v];
+	}
+
+	/**
+	 * Number of nodes adjacent to node v
+	 *
+	 * @param v index of the node
+	 * @return degree of v
+	 */
+	public int degree(int v){
+		if (building != null){
+			return building[v] == null ? 0 : building[v].size();
+		}
+		Row row = patched(v);
+		if (row != null){
+			return row.size;
+		}
+		return v < offsets.length - 1 ? offsets[v+1] - offsets[v] : 0;
+	}
+
+	/**
+	 * The i'th neighbor of node v, in ascending index order. Only valid once frozen.
+	 *
+	 * @param v index of the node
+	 * @param i position among v's neighbors, below degree(v)
+	 * @return index of the neighbor
+	 */
+	public int neighbor(int v, int i){
+		checkFrozen();
+		Row row = patched(v);
+		return row != null ? row.neighbors[i] : neighbors[offsets[v] + i];
+	}
+
+	/**
+	 * Weight of the edge to the i'th neighbor of node v. Only valid once frozen.
+	 *
+	 * @param v index of the node
+	 * @param i position among v's neighbors, below degree(v)
+	 * @return weight of the edge
+	 */
+	public int weight(int v, int i){
+		checkFrozen();
+		Row row = patched(v);
+		return row != null ? row.weights[i] : weights[offsets[v] + i];
+	}
+
+	/**
+	 * Weight of the edge between node u and node v
+	 *
+	 * @param u index of the first node
+	 * @param v index of the second node
+	 * @return weight of the edge, 0 if they are not adjacent
+	 */
+	public int weightBetween(int u, int v){
+		if (building != null){
+			return building[u] == null ? 0 : building[u].get(v);
+		}
+		Row row = patched(u);
+		if (row != null){
+			int i = Arrays.binarySearch(row.neighbors, 0, row.size, v);
+			return i < 0 ? 0 : row.weights[i];
+		}
+		if (u >= offsets.length - 1){
+			return 0;
+		}
+		int i = Arrays.binarySearch(neighbors, offsets[u], offsets[u+1], v);
+		return i < 0 ? 0 : weights[i];
+	}
+
+	/**
+	 * Number of entries held to represent the edges: two per undirected edge
+	 *
+	 * @return number of stored entries
+	 */
+	public long storedEntries(){
+		return 2 * edgeCount();
+	}
+
+	/**
+	 * Total number of edges, counting each undirected edge once
+	 *
+	 * @return number of edges
+	 */
+	public long edgeCount(){
+		long directed = 0;
+		for (int v = 0; v < size; v++){
+			directed += degree(v);
+		}
+		return directed / 2;
+	}
+
+	private void checkFrozen(){
+		if (building != null){
+			throw new IllegalStateException("Adjacency is not frozen");
+		}
+	}
+
+	/**
+	 * The changed row of node v, null if it is unchanged since the last compaction
+	 */
+	private Row patched(int v){
+		return patches == null || v >= patches.length ? null : patches[v];
+	}
+
+	/**
+	 * The changed row of node v, copying it out of the compressed arrays
+	 * if it is not changed yet
+	 */
+	private Row patch(int v){
+		if (patches == null || v >= patches.length){
+			patches = patches == null ? new Row[nodes.length] : Arrays.copyOf(patches, nodes.length);
+		}
+		if (patches[v] == null){
+			int from = v < offsets.length - 1 ? offsets[v] : 0, degree = degree(v);
+			patches[v] = new Row(Arrays.copyOfRange(neighbors, from, from + degree + 4),
+					Arrays.copyOfRange(weights, from, from + degree + 4), degree);
+			patchCount++;
+		}
+		return patches[v];
+	}
+
+	/**
+	 * One node's neighbors in ascending order and the matching edge weights
+	 */
+	static class Row {
+		int[] neighbors, weights;
+		int size;
+
+		Row(int[] neighbors, int[] weights, int size){
+			this.neighbors = neighbors;
+			this.weights = weights;
+			this.size = size;
+		}
+
+		void increment(int to){
+			int i = Arrays.binarySearch(neighbors, 0, size, to);
+			if (i >= 0){
+				weights[i]++;
+				return;
+			}
+			i = -i - 1;
+			if (size == neighbors.length){
+				neighbors = Arrays.copyOf(neighbors, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			System.arraycopy(neighbors, i, neighbors, i + 1, size - i);
+			System.arraycopy(weights, i, weights, i + 1, size - i);
+			neighbors[i] = to;
+			weights[i] = 1;
+			size++;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package Model;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Rates every review of a Graph, or a filtered subset of them, with the
+ * Rater heuristics. The reviews are split fork-join style across a pool of
+ * worker threads, and each finished block of results is streamed straight
+ * to the output, so results are not held in memory.
+ *
+ * Each output line is tab separated: the review's position in
+ * Graph.reviews, its rating, and the contribution of every attribute as
+ * comma separated name=value pairs. Blocks are written as they finish, so
+ * lines are not necessarily in review order.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Rater
+ * @see Graph
+ */
+public class BatchRater {
+	/**
+	 * Number of reviews rated by one task without splitting further
+	 */
+	private static final int BLOCK_SIZE = 1024;
+
+	private final Graph graph;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor for a batch rater using one worker per core
+	 *
+	 * @param graph Graph whose reviews are rated
+	 */
+	public BatchRater(Graph graph){
+		this(graph, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor for a batch rater using the given number of workers
+	 *
+	 * @param graph Graph whose reviews are rated
+	 * @param workers Number of worker threads
+	 */
+	public BatchRater(Graph graph, int workers){
+		this.graph = graph;
+		this.pool = new ForkJoinPool(workers);
+	}
+
+	/**
+	 * Rates every review in the graph and writes the results to file
+	 *
+	 * @param output File to write results to; overwritten
+	 * @return number of reviews rated
+	 * @throws IOException if the results cannot be written
+	 */
+	public int rateAll(File output) throws IOException {
+		return rate(r -> true, output);
+	}
+
+	/**
+	 * Rates the reviews accepted by filter and writes the results to file
+	 *
+	 * @param filter Selects the reviews to be rated
+	 * @param output File to write results to; overwritten
+	 * @return number of reviews rated
+	 * @throws IOException if the results cannot be written
+	 */
+	public int rate(Predicate<Review> filter, File output) throws IOException {
+		try (Writer out = new BufferedWriter(new FileWriter(output))){
+			return rate(filter, out);
+		}
+	}
+
+	/**
+	 * Rates the reviews accepted by filter and writes the results to out
+	 *
+	 * @param filter Selects the reviews to be rated
+	 * @param out Writer receiving one line per rated review
+	 * @return number of reviews rated
+	 * @throws IOException if the results cannot be written
+	 */
+	public int rate(Predicate<Review> filter, Writer out) throws IOException {
+		try {
+			return pool.invoke(new RateTask(filter, out, 0, graph.reviews.size()));
+		} catch (UncheckedIOException e){
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Appends a rating and the contribution of every attribute, in the
+	 * format of an output line after the review's position
+	 *
+	 * @param line Line being written
+	 * @param rater Rater of the review
+	 */
+	static void appendRating(StringBuilder line, Rater rater){
+		line.append(rater.getRating()).append('\t');
+		boolean first = true;
+		for (Map.Entry<String, Double> e : rater.getContributions().entrySet()){
+			line.append(first ? "" : ",").append(e.getKey()).append('=').append(e.getValue());
+			first = false;
+		}
+	}
+
+	/**
+	 * Stops the worker threads
+	 */
+	public void shutdown(){
+		pool.shutdown();
+	}
+
+	/**
+	 * Rates the reviews in one range of Graph.reviews, splitting it in half
+	 * until it is no bigger than BLOCK_SIZE.
+	 */
+	private class RateTask extends RecursiveTask<Integer> {
+		private static final long serialVersionUID = 1L;
+		private final Predicate<Review> filter;
+		private final Writer out;
+		private final int from, to;
+
+		RateTask(Predicate<Review> filter, Writer out, int from, int to){
+			this.filter = filter;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Integer compute(){
+			if (to - from > BLOCK_SIZE){
+				int middle = (from + to) >>> 1;
+				RateTask left = new RateTask(filter, out, from, middle);
+				left.fork();
+				int right = new RateTask(filter, out, middle, to).compute();
+				return left.join() + right;
+			}
+			StringBuilder block = new StringBuilder();
+			int rated = 0;
+			for (int i = from; i < to; i++){
+				Review review = graph.reviews.get(i);
+				if (!filter.test(review)){
+					continue;
+				}
+				block.append(i).append('\t');
+				appendRating(block, new Rater(graph, review));
+				block.append('\n');
+				rated++;
+			}
+			try {
+				synchronized (out){
+					out.write(block.toString());
+				}
+			} catch (IOException e){
+				throw new UncheckedIOException(e);
+			}
+			return rated;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency that stores which reviewers reviewed which products instead of
+ * the co-review edges themselves. Storage grows with the number of reviews
+ * rather than with the square of each product's popularity. A node's
+ * neighbors and edge weights are derived from the products it reviewed
+ * when they are first read, and the last row derived is cached per thread.
+ *
+ * The weight between two reviewers is the sum over the products they both
+ * reviewed of the product of their numbers of reviews of it, the same as
+ * CLIQUE edge building gives.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see EdgeStrategy
+ * @see Adjacency
+ *
+ */
+public class BipartiteAdjacency extends Adjacency {
+	/**
+	 * Number of reviews of each product, by node index
+	 */
+	private IntIntMap[] productsOf = new IntIntMap[16];
+	/**
+	 * Number of reviews by each node, by product ordinal
+	 */
+	private IntIntMap[] reviewersOf = new IntIntMap[16];
+	private long memberships = 0;
+	/**
+	 * Changes whenever a membership is added, invalidating cached rows
+	 */
+	private volatile int version = 0;
+	private final ThreadLocal<CachedRow> cache = ThreadLocal.withInitial(CachedRow::new);
+
+	/**
+	 * Records that a node reviewed a product
+	 *
+	 * @param v index of the reviewer's node
+	 * @param product ordinal of the product
+	 */
+	public void addReview(int v, int product){
+		if (v >= productsOf.length){
+			productsOf = Arrays.copyOf(productsOf, Math.max(v + 1, productsOf.length * 2));
+		}
+		if (product >= reviewersOf.length){
+			reviewersOf = Arrays.copyOf(reviewersOf, Math.max(product + 1, reviewersOf.length * 2));
+		}
+		if (productsOf[v] == null){
+			productsOf[v] = new IntIntMap();
+		}
+		if (reviewersOf[product] == null){
+			reviewersOf[product] = new IntIntMap();
+		}
+		if (productsOf[v].increment(product) == 1){
+			memberships++;
+		}
+		reviewersOf[product].increment(v);
+		version++;
+	}
+
+	/**
+	 * Not supported: edges follow from the reviews added with addReview
+	 */
+	@Override
+	public void increment(int from, int to){
+		throw new UnsupportedOperationException("Bipartite edges are derived from reviews");
+	}
+
+	@Override
+	public void compact(){
+	}
+
+	@Override
+	public int degree(int v){
+		return row(v).size;
+	}
+
+	@Override
+	public int neighbor(int v, int i){
+		return row(v).neighbors[i];
+	}
+
+	@Override
+	public int weight(int v, int i){
+		return row(v).weights[i];
+	}
+
+	@Override
+	public int weightBetween(int u, int v){
+		if (u == v || u >= productsOf.length || productsOf[u] == null){
+			return 0;
+		}
+		int[] weight = {0};
+		productsOf[u].forEach((product, count) -> weight[0] += count * reviewersOf[product].get(v));
+		return weight[0];
+	}
+
+	/**
+	 * Two entries per reviewer-product pair, one on each side
+	 */
+	@Override
+	public long storedEntries(){
+		return 2 * memberships;
+	}
+
+	/**
+	 * Derives the row of node v, or returns it from this thread's cache
+	 */
+	private Row row(int v){
+		CachedRow cached = cache.get();
+		int current = version;
+		if (cached.node == v && cached.version == current){
+			return cached;
+		}
+		IntIntMap weights = new IntIntMap();
+		if (v < productsOf.length && productsOf[v] != null){
+			productsOf[v].forEach((product, count) -> reviewersOf[product].forEach((u, others) -> {
+				if (u != v){
+					weights.add(u, count * others);
+				}
+			}));
+		}
+		cached.size = weights.size();
+		if (cached.neighbors.length < cached.size){
+			cached.neighbors = new int[cached.size];
+			cached.weights = new int[cached.size];
+		}
+		weights.copySorted(cached.neighbors, cached.weights, 0);
+		cached.node = v;
+		cached.version = current;
+		return cached;
+	}
+
+	/**
+	 * Row of the node last derived by a thread
+	 */
+	private static class CachedRow extends Row {
+		int node = -1, version;
+
+		CachedRow(){
+			super(new int[16], new int[16], 0);
+		}
+	}
+}
@@ -0,0 +1,506 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Reads the dataset file into ReviewRecords. The file is memory-mapped and
+ * split into chunks at record boundaries (the blank line between records),
+ * then the chunks are parsed in parallel on all cores. Records come back in
+ * file order, so the result is the same as reading the file line by line.
+ * They can also be streamed to a consumer, so that no more than a window
+ * of chunks is held at once. Records arriving on a stream, such as standard
+ * input, are read one at a time with read.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see ReviewRecord
+ * @see Graph
+ *
+ */
+public class DatasetParser {
+	/**
+	 * Approximate size in bytes of a chunk handed to one worker.
+	 */
+	private static final int CHUNK_SIZE = 16 << 20;
+	/**
+	 * Label that starts every record in the dataset file.
+	 */
+	private static final byte[] RECORD_START = "product/productId:".getBytes(StandardCharsets.US_ASCII);
+
+	private final File file;
+	private final int limit;
+	/**
+	 * Charset used to decode fields. Matches what a Scanner over the file would use.
+	 */
+	private final Charset charset = Charset.defaultCharset();
+	/**
+	 * Bytes of the file in the chunks consumed so far
+	 */
+	private long bytesRead = 0;
+
+	/**
+	 * Constructor for a parser over the given file
+	 *
+	 * @param file Dataset file in the labeled record format
+	 * @param limit Maximum number of records to read, counting malformed ones
+	 */
+	public DatasetParser(File file, int limit){
+		this.file = file;
+		this.limit = limit;
+	}
+
+	/**
+	 * Parses the file. Malformed records are reported and skipped, but still
+	 * count towards the limit.
+	 *
+	 * @return All well formed records in the order they appear in the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public List<ReviewRecord> parse() throws IOException {
+		return parse(f -> {});
+	}
+
+	/**
+	 * Parses the file, reporting progress after each chunk has been consumed.
+	 * Progress is the larger of the fraction of the file read and the fraction
+	 * of the limit reached.
+	 *
+	 * @param progress Receives the fraction of the work done, between 0 and 1
+	 * @return All well formed records in the order they appear in the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public List<ReviewRecord> parse(DoubleConsumer progress) throws IOException {
+		ArrayList<ReviewRecord> records = new ArrayList<ReviewRecord>();
+		parse(progress, records::add);
+		return records;
+	}
+
+	/**
+	 * Parses the file, handing each well formed record to sink on the calling
+	 * thread, in file order, and reporting progress after each chunk has been
+	 * consumed. Only the chunks in flight are held in memory.
+	 *
+	 * @param progress Receives the fraction of the work done, between 0 and 1
+	 * @param sink Receives the well formed records in the order they appear in the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public void parse(DoubleConsumer progress, Consumer<ReviewRecord> sink) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			ArrayList<Long> bounds = chunkBoundaries(channel);
+			int threads = Runtime.getRuntime().availableProcessors();
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				// Keep a bounded window of chunks in flight and consume them in order,
+				// so reading stops early once the limit has been reached
+				ArrayDeque<Future<ReviewRecord[]>> pending = new ArrayDeque<Future<ReviewRecord[]>>();
+				int next = 0, consumed = 0, attempts = 0;
+				long size = bounds.get(bounds.size() - 1);
+				while (attempts < limit && (next < bounds.size() - 1 || !pending.isEmpty())){
+					while (next < bounds.size() - 1 && pending.size() < 2 * threads){
+						final long start = bounds.get(next), end = bounds.get(next + 1);
+						pending.add(pool.submit(() -> parseChunk(channel, start, end)));
+						next++;
+					}
+					ReviewRecord[] chunk = pending.remove().get();
+					for (int i = 0; i < chunk.length && attempts < limit; i++, attempts++){
+						if (chunk[i] != null){
+							sink.accept(chunk[i]);
+						}
+					}
+					consumed++;
+					bytesRead = bounds.get(consumed);
+					progress.accept(Math.min(1, Math.max(size == 0 ? 1 : (double) bounds.get(consumed) / size, (double) attempts / limit)));
+				}
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading " + file, e);
+			} catch (ExecutionException e){
+				if (e.getCause() instanceof IOException){
+					throw (IOException) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Reads records in the labeled record format from a stream, handing
+	 * each to sink as soon as the blank line ending it, or the end of the
+	 * stream, has been read. Records are read by the same rules as parse,
+	 * but malformed records are not reported; sink receives null for them
+	 * instead, so every record of the stream is accounted for in order.
+	 * Lines must end with \n or \r\n.
+	 *
+	 * @param in Stream of records; not closed
+	 * @param sink Receives each record, or null for a malformed one, in stream order
+	 * @return number of records read, counting malformed ones
+	 * @throws IOException if the stream cannot be read
+	 */
+	public static long read(InputStream in, Consumer<ReviewRecord> sink) throws IOException {
+		Charset charset = Charset.defaultCharset();
+		byte[] buf = new byte[64 << 10], record = new byte[4096];
+		int length = 0, lineStart = 0, n;
+		long records = 0;
+		while ((n = in.read(buf)) >= 0){
+			for (int i = 0; i < n; i++){
+				if (buf[i] == '\n' && (length == lineStart || (length == lineStart + 1 && record[lineStart] == '\r'))){
+					// A blank line ends the record, if there is one
+					if (lineStart > 0){
+						records += emit(record, lineStart, charset, sink);
+					}
+					length = lineStart = 0;
+					continue;
+				}
+				if (length == record.length){
+					record = Arrays.copyOf(record, length * 2);
+				}
+				record[length++] = buf[i];
+				if (buf[i] == '\n'){
+					lineStart = length;
+				}
+			}
+		}
+		if (length > 0){
+			records += emit(record, length, charset, sink);
+		}
+		return records;
+	}
+
+	/**
+	 * Parses the bytes of one record from a stream and hands it to sink
+	 *
+	 * @return number of records handed over
+	 */
+	private static int emit(byte[] record, int length, Charset charset, Consumer<ReviewRecord> sink){
+		ReviewRecord[] parsed = new ChunkReader(Arrays.copyOf(record, length), charset, null, false).read();
+		for (ReviewRecord r : parsed){
+			sink.accept(r);
+		}
+		return parsed.length;
+	}
+
+	/**
+	 * Getter for the number of bytes of the file read by the last parse
+	 *
+	 * @return bytes in the chunks whose records were consumed
+	 */
+	public long bytesRead(){
+		return bytesRead;
+	}
+
+	/**
+	 * Splits the file into chunks of roughly CHUNK_SIZE bytes, each starting
+	 * at the beginning of a record.
+	 *
+	 * @param channel Open channel to the dataset file
+	 * @return Offsets of chunk starts, followed by the file size
+	 * @throws IOException if the file cannot be read
+	 */
+	private ArrayList<Long> chunkBoundaries(FileChannel channel) throws IOException {
+		long size = channel.size();
+		ArrayList<Long> bounds = new ArrayList<Long>();
+		bounds.add(0L);
+		long target = CHUNK_SIZE;
+		while (target < size){
+			long boundary = nextRecordStart(channel, target, size);
+			if (boundary < 0){
+				target += CHUNK_SIZE;
+				continue;
+			}
+			if (boundary - bounds.get(bounds.size() - 1) > Integer.MAX_VALUE){
+				throw new IOException("No record boundary found in " + file);
+			}
+			bounds.add(boundary);
+			target = boundary + CHUNK_SIZE;
+		}
+		bounds.add(size);
+		return bounds;
+	}
+
+	/**
+	 * Finds the first record start at or after the given offset, looking at
+	 * most CHUNK_SIZE bytes ahead. A record starts with its label on the line
+	 * right after a blank line.
+	 *
+	 * @param channel Open channel to the dataset file
+	 * @param from Offset to start looking at
+	 * @param size Size of the file
+	 * @return Offset of the record start, or -1 if none was found
+	 * @throws IOException if the file cannot be read
+	 */
+	private static long nextRecordStart(FileChannel channel, long from, long size) throws IOException {
+		long base = Math.max(0, from - 3);
+		int length = (int) Math.min(size - base, CHUNK_SIZE);
+		MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, base, length);
+		for (int i = (int) (from - base); i + RECORD_START.length <= length; i++){
+			if (i < 2 || map.get(i-1) != '\n'){
+				continue;
+			}
+			boolean blank = map.get(i-2) == '\n' || (i >= 3 && map.get(i-2) == '\r' && map.get(i-3) == '\n');
+			if (!blank){
+				continue;
+			}
+			int j = 0;
+			while (j < RECORD_START.length && map.get(i+j) == RECORD_START[j]){
+				j++;
+			}
+			if (j == RECORD_START.length){
+				return base + i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Parses one chunk of the file.
+	 *
+	 * @param channel Open channel to the dataset file
+	 * @param start Offset of the first byte of the chunk
+	 * @param end Offset just past the last byte of the chunk
+	 * @return One entry per record in the chunk; null for malformed records
+	 * @throws IOException if the file cannot be read
+	 */
+	private ReviewRecord[] parseChunk(FileChannel channel, long start, long end) throws IOException {
+		byte[] buf = new byte[(int) (end - start)];
+		channel.map(FileChannel.MapMode.READ_ONLY, start, end - start).get(buf);
+		return new ChunkReader(buf, charset, new ChunkDictionary(), true).read();
+	}
+
+	/**
+	 * Line reader over one chunk. Follows the same rules as the original
+	 * Scanner based reader: a blank line ends a record, and once a record is
+	 * found to be malformed its remaining lines are skipped. Product IDs,
+	 * user IDs and profile names are decoded once per chunk and shared by
+	 * every record repeating them.
+	 */
+	private static class ChunkReader {
+		private final byte[] buf;
+		private final Charset charset;
+		/**
+		 * Strings of the chunk's identifiers; null to decode every one
+		 */
+		private final ChunkDictionary identifiers;
+		/**
+		 * Whether malformed records are reported on standard output
+		 */
+		private final boolean report;
+		private int pos = 0, lineStart, lineEnd;
+
+		ChunkReader(byte[] buf, Charset charset, ChunkDictionary identifiers, boolean report){
+			this.buf = buf;
+			this.charset = charset;
+			this.identifiers = identifiers;
+			this.report = report;
+		}
+
+		ReviewRecord[] read(){
+			ArrayList<ReviewRecord> records = new ArrayList<ReviewRecord>();
+			boolean error = false;
+			while (nextLine()){
+				if (lineStart == lineEnd){
+					error = false;
+					continue;
+				} else if (error){
+					continue;
+				}
+				String productId = null, userId = null;
+				try {
+					productId = identifier();
+					requireLine();
+					userId = identifier();
+					requireLine();
+					String profileName = identifier();
+					String[] helps = nextField().split("/");
+					double helpfulness;
+					int help = Integer.parseInt(helps[1]);
+					if (help == 0){
+						helpfulness = -1;
+					} else {
+						helpfulness = Double.parseDouble(helps[0]) / help;
+					}
+					int score = (int) Double.parseDouble(nextField());
+					int time = Integer.parseInt(nextField());
+					String summary = nextField();
+					String text = nextField();
+					records.add(new ReviewRecord(productId, userId, profileName, helpfulness, score, time, summary, text));
+				} catch (NumberFormatException | ArrayIndexOutOfBoundsException | NoSuchElementException e){
+					if (report){
+						System.out.println("Malformed record " + productId + " " + userId + ": " + e);
+					}
+					records.add(null);
+					error = true;
+				}
+			}
+			return records.toArray(new ReviewRecord[0]);
+		}
+
+		/**
+		 * Advances to the next line, accepting \n, \r\n and \r as line ends.
+		 *
+		 * @return false if there are no lines left
+		 */
+		private boolean nextLine(){
+			if (pos >= buf.length){
+				return false;
+			}
+			int i = pos;
+			while (i < buf.length && buf[i] != '\n' && buf[i] != '\r'){
+				i++;
+			}
+			lineStart = pos;
+			lineEnd = i;
+			if (i + 1 < buf.length && buf[i] == '\r' && buf[i+1] == '\n'){
+				i++;
+			}
+			pos = i + 1;
+			return true;
+		}
+
+		/**
+		 * Advances to the next line of a record, which must exist
+		 */
+		private void requireLine(){
+			if (!nextLine()){
+				throw new NoSuchElementException("Record truncated");
+			}
+		}
+
+		private String nextField(){
+			requireLine();
+			return field();
+		}
+
+		/**
+		 * Returns the portion of the current line after the first occurence of ": ".
+		 * A line ending in ':' is malformed.
+		 *
+		 * @return portion after the label
+		 */
+		private String field(){
+			int from = valueStart();
+			return new String(buf, from, lineEnd - from, charset);
+		}
+
+		/**
+		 * Returns the same as field, as the String already decoded for an
+		 * earlier line of the chunk with the same value if there is one
+		 *
+		 * @return portion after the label
+		 */
+		private String identifier(){
+			return identifiers == null ? field() : identifiers.get(buf, valueStart(), lineEnd, charset);
+		}
+
+		/**
+		 * Finds where the value of the current line starts
+		 *
+		 * @return index in buf just after the first ": ", or the line start if there is none
+		 */
+		private int valueStart(){
+			for (int j = lineStart; j < lineEnd; j++){
+				if (buf[j] == ':'){
+					if (j + 1 == lineEnd){
+						throw new ArrayIndexOutOfBoundsException("Label without value");
+					} else if (buf[j+1] == ' '){
+						return j + 2;
+					}
+				}
+			}
+			return lineStart;
+		}
+	}
+
+	/**
+	 * Strings decoded from one chunk, looked up by their bytes in the chunk
+	 * so that a repeated value is neither decoded nor allocated again
+	 */
+	private static class ChunkDictionary {
+		/**
+		 * Open addressing table of entries plus one, 0 marking an empty slot
+		 */
+		private int[] slots = new int[256];
+		private int[] start = new int[128], length = new int[128], hash = new int[128];
+		private String[] values = new String[128];
+		private int size = 0;
+
+		/**
+		 * Returns the String for a range of bytes, decoding it the first time it is seen
+		 *
+		 * @param buf Bytes of the chunk
+		 * @param from Start of the value
+		 * @param to End of the value, excluded
+		 * @param charset Charset to decode with
+		 * @return the decoded value, shared by every equal range
+		 */
+		String get(byte[] buf, int from, int to, Charset charset){
+			int h = 1;
+			for (int i = from; i < to; i++){
+				h = 31 * h + buf[i];
+			}
+			int mask = slots.length - 1, slot = (h ^ (h >>> 16)) & mask;
+			while (slots[slot] != 0){
+				int e = slots[slot] - 1;
+				if (hash[e] == h && length[e] == to - from && equal(buf, start[e], from, to - from)){
+					return values[e];
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (size == values.length){
+				start = Arrays.copyOf(start, size * 2);
+				length = Arrays.copyOf(length, size * 2);
+				hash = Arrays.copyOf(hash, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			start[size] = from;
+			length[size] = to - from;
+			hash[size] = h;
+			values[size] = new String(buf, from, to - from, charset);
+			slots[slot] = ++size;
+			if (size * 2 > slots.length){
+				rehash();
+			}
+			return values[size - 1];
+		}
+
+		private static boolean equal(byte[] buf, int a, int b, int n){
+			for (int i = 0; i < n; i++){
+				if (buf[a + i] != buf[b + i]){
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void rehash(){
+			slots = new int[slots.length * 2];
+			int mask = slots.length - 1;
+			for (int e = 0; e < size; e++){
+				int slot = (hash[e] ^ (hash[e] >>> 16)) & mask;
+				while (slots[slot] != 0){
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = e + 1;
+			}
+		}
+	}
+}
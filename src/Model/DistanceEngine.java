@@ -0,0 +1,142 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Shortest path lengths between nodes of an Adjacency, found by a
+ * breadth-first search from both ends at once that always expands the
+ * smaller frontier. The queues and visited arrays are kept between
+ * queries; a node counts as visited only if it is stamped with the
+ * current query's epoch, so nothing has to be cleared before a query.
+ *
+ * An engine holds the state of one query at a time and must not be
+ * shared between threads.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Adjacency
+ * @see Graph
+ *
+ */
+public class DistanceEngine {
+	/**
+	 * Hop bound meaning the search is not bounded
+	 */
+	public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+	private final Adjacency adjacency;
+	private int epoch = 0;
+	/**
+	 * Epoch in which each node was reached from the source and from the target
+	 */
+	private int[] stampSource = new int[0], stampTarget = new int[0];
+	/**
+	 * Hops from the source and from the target, valid where stamped
+	 */
+	private int[] hopsSource = new int[0], hopsTarget = new int[0];
+	private int[] queueSource = new int[0], queueTarget = new int[0];
+	/**
+	 * Length of the shortest path through the frontier last expanded, UNBOUNDED if none
+	 */
+	private int meeting;
+
+	/**
+	 * Constructor for an engine over the given adjacency
+	 *
+	 * @param adjacency Frozen adjacency to search
+	 */
+	public DistanceEngine(Adjacency adjacency){
+		this.adjacency = adjacency;
+	}
+
+	/**
+	 * Number of edges on the shortest path between two nodes, ignoring edge weights
+	 *
+	 * @param source index of the first node
+	 * @param target index of the second node
+	 * @param maxHops longest path of interest; UNBOUNDED to search the whole graph
+	 * @return number of edges on the shortest path; -1 if there is none of at most maxHops edges
+	 */
+	public int distance(int source, int target, int maxHops){
+		if (source == target){
+			return 0;
+		}
+		prepare();
+		stampSource[source] = epoch;
+		hopsSource[source] = 0;
+		stampTarget[target] = epoch;
+		hopsTarget[target] = 0;
+		queueSource[0] = source;
+		queueTarget[0] = target;
+		// Each frontier is the range from start to end of its queue
+		int startSource = 0, endSource = 1, startTarget = 0, endTarget = 1;
+		int depthSource = 0, depthTarget = 0;
+
+		while (startSource < endSource && startTarget < endTarget && depthSource + depthTarget < maxHops){
+			int best;
+			if (endSource - startSource <= endTarget - startTarget){
+				int next = expand(queueSource, startSource, endSource, stampSource, hopsSource, stampTarget, hopsTarget);
+				best = meeting;
+				startSource = endSource;
+				endSource = next;
+				depthSource++;
+			} else {
+				int next = expand(queueTarget, startTarget, endTarget, stampTarget, hopsTarget, stampSource, hopsSource);
+				best = meeting;
+				startTarget = endTarget;
+				endTarget = next;
+				depthTarget++;
+			}
+			if (best != UNBOUNDED){
+				return best;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Visits every neighbor of one frontier, appending the newly reached
+	 * nodes to the queue, and records the shortest path found to the other side
+	 *
+	 * @return end of the queue, where the next frontier stops
+	 */
+	private int expand(int[] queue, int start, int end, int[] stamp, int[] hops, int[] otherStamp, int[] otherHops){
+		meeting = UNBOUNDED;
+		int tail = end;
+		for (int k = start; k < end; k++){
+			int u = queue[k], degree = adjacency.degree(u);
+			for (int i = 0; i < degree; i++){
+				int w = adjacency.neighbor(u, i);
+				if (otherStamp[w] == epoch){
+					meeting = Math.min(meeting, hops[u] + 1 + otherHops[w]);
+				}
+				if (stamp[w] != epoch){
+					stamp[w] = epoch;
+					hops[w] = hops[u] + 1;
+					queue[tail++] = w;
+				}
+			}
+		}
+		return tail;
+	}
+
+	/**
+	 * Starts a new epoch, growing the arrays if nodes were added since the last query
+	 */
+	private void prepare(){
+		int n = adjacency.size();
+		if (stampSource.length < n){
+			stampSource = Arrays.copyOf(stampSource, n);
+			stampTarget = Arrays.copyOf(stampTarget, n);
+			hopsSource = new int[n];
+			hopsTarget = new int[n];
+			queueSource = new int[n];
+			queueTarget = new int[n];
+		}
+		if (++epoch == Integer.MAX_VALUE){
+			Arrays.fill(stampSource, 0);
+			Arrays.fill(stampTarget, 0);
+			epoch = 1;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package Model;
+
+/**
+ * How a Graph connects reviewers who reviewed the same product.
+ * <ul>
+ * <li>CLIQUE links every review of a product to every earlier one, so a
+ * product with k reviews costs O(k^2) edge updates.</li>
+ * <li>Degree capped links each review only to the reviewers of the most
+ * recent cap earlier reviews of the product, bounding the cost to O(k*cap)
+ * at the price of dropping edges between distant reviews of popular products.</li>
+ * <li>BIPARTITE stores only which reviewers reviewed which products, and
+ * derives co-review edges and weights from that whenever they are read.
+ * Weights are the same as with CLIQUE.</li>
+ * </ul>
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ * @see BipartiteAdjacency
+ *
+ */
+public final class EdgeStrategy {
+	/**
+	 * The kinds of strategy
+	 */
+	public enum Kind {
+		CLIQUE, DEGREE_CAPPED, BIPARTITE
+	}
+
+	/**
+	 * Every pair of reviewers of a product is connected
+	 */
+	public static final EdgeStrategy CLIQUE = new EdgeStrategy(Kind.CLIQUE, Integer.MAX_VALUE);
+	/**
+	 * Edges are derived from reviewer-product memberships on demand
+	 */
+	public static final EdgeStrategy BIPARTITE = new EdgeStrategy(Kind.BIPARTITE, Integer.MAX_VALUE);
+
+	public final Kind kind;
+	/**
+	 * Number of earlier reviews of a product each review is linked to
+	 */
+	public final int cap;
+
+	private EdgeStrategy(Kind kind, int cap){
+		this.kind = kind;
+		this.cap = cap;
+	}
+
+	/**
+	 * Strategy linking each review to at most cap earlier reviews of its product
+	 *
+	 * @param cap Number of earlier reviews linked to, at least 1
+	 * @return the strategy
+	 */
+	public static EdgeStrategy degreeCapped(int cap){
+		if (cap < 1){
+			throw new IllegalArgumentException("Edge cap must be at least 1: " + cap);
+		}
+		return new EdgeStrategy(Kind.DEGREE_CAPPED, cap);
+	}
+
+	/**
+	 * Reads a strategy written as "clique", "bipartite" or "capped:N"
+	 *
+	 * @param text Name of the strategy
+	 * @return the strategy
+	 * @throws IllegalArgumentException if text names no strategy
+	 */
+	public static EdgeStrategy parse(String text){
+		String name = text.trim().toLowerCase();
+		if (name.equals("clique")){
+			return CLIQUE;
+		} else if (name.equals("bipartite")){
+			return BIPARTITE;
+		} else if (name.startsWith("capped:")){
+			try {
+				return degreeCapped(Integer.parseInt(name.substring("capped:".length())));
+			} catch (NumberFormatException e){
+				throw new IllegalArgumentException("Bad edge cap in " + text);
+			}
+		}
+		throw new IllegalArgumentException("Unknown edge strategy " + text);
+	}
+
+	@Override
+	public String toString(){
+		return kind == Kind.DEGREE_CAPPED ? "capped:" + cap : kind.name().toLowerCase();
+	}
+}
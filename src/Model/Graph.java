@@ -2,21 +2,25 @@ package Model;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.TreeMap;
-import java.util.TreeSet;
-
-import View.UserInterface;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
  * An undirected graph of Nodes. Read from a dataset file at the location
  * designated by filename. 
  * 
+ * Once loaded, any number of threads may query the graph at once while
+ * reviews are appended. The public maps are not guarded, so callers that
+ * iterate them must not run alongside appends.
+ * 
  * @author Ian
  * @version 1.0
  * @see Node
@@ -28,9 +32,9 @@ import View.UserInterface;
  */
 public class Graph {
 	/**
-	 * All reviews in the graph
+	 * All reviews in the graph, in the order they were added
 	 */
-	public Review[] reviews;
+	public final ReviewStore reviews;
 	/**
 	 * All nodes in the dataset. Mapped to by their reviewer's ID
 	 */
@@ -39,6 +43,62 @@ public class Graph {
 	 * All products in the dataset. Mapped to by their productID.
 	 */
 	public TreeMap<String, Product> products = new TreeMap<String, Product>();
+	/**
+	 * Weighted edges between all nodes, addressed by Node.index
+	 */
+	private final Adjacency adjacency;
+	/**
+	 * How reviewers of the same product are connected
+	 */
+	private final EdgeStrategy edgeStrategy;
+	/**
+	 * Lookups of reviewers by ID and by profile name
+	 */
+	private ReviewerIndex reviewerIndex;
+	/**
+	 * Inverted indexes over review text and summaries, keyed by position in reviews
+	 */
+	private final TextIndex textIndex, summaryIndex;
+	/**
+	 * Word counts and keywords of every review, by position in reviews
+	 */
+	private TextStats textStats;
+	/**
+	 * Whether the graph has been completely loaded
+	 */
+	private volatile boolean loaded = false;
+	/**
+	 * Why the dataset file could not be read, null if it was read completely
+	 */
+	private IOException readFailure = null;
+	/**
+	 * Number of products created so far, including ones sharing an ID with a later listing
+	 */
+	private int productCount = 0;
+	/**
+	 * Reviewers ranked by accuracy, updated in place under the write lock
+	 */
+	private RankIndex rankIndex;
+	/**
+	 * Percentile of each reviewer among its neighbors, by node index.
+	 * Null with bipartite edges, where computing all of them costs as much
+	 * as building every edge. Updated in place under the write lock, and
+	 * may be longer than the number of reviewers.
+	 */
+	private double[] connectionPercentiles;
+	/**
+	 * Reusable state for distance queries, one per querying thread
+	 */
+	private final ThreadLocal<DistanceEngine> distanceEngine = ThreadLocal.withInitial(() -> new DistanceEngine(getAdjacency()));
+	/**
+	 * Queries hold the read lock and appends the write lock, so any number
+	 * of queries may run at once but never while the graph changes.
+	 * Loading holds the write lock while it adds each chunk of the dataset.
+	 * Writing a snapshot compacts the edges under the write lock, then
+	 * holds the read lock. The lock is fair, so queries waiting for a chunk
+	 * to be added run before the next one is.
+	 */
+	final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
 	
 	/**
 	 * Constants determined experimentally from the dataset
@@ -46,22 +106,203 @@ public class Graph {
 	private  static final double averageHelpfulness = 0.7769739692595451,
 								 averageAdjacencies = 61.37734471109722;
 	/**
-	 * The number of reviews in the dataset file and the number of reviews
-	 * to be actually read, respectively. numReviews should be smaller than
-	 * maxReviews for testing, for speed reasons.
+	 * The number of reviews read from the dataset file unless a limit is
+	 * given. Reviews are kept in a ReviewStore, so the whole file is read.
 	 */
-	private static final int maxReviews = 568447,
-	                         numReviews = 100000;
+	private static final int numReviews = Integer.MAX_VALUE;
 	/**
 	 * Relative location of the dataset file from the project root.
 	 */
 	private static final String filename = "foods.txt";	
+	/**
+	 * Approximate shares of the load spent parsing the file and building
+	 * reviews, products and reviewers, which happen together as the file
+	 * is streamed. Indexing takes the rest.
+	 */
+	private static final double PARSE_SHARE = 0.5, BUILD_SHARE = 0.3;
 	
 	/**
 	 * Constructor which reads the dataset from file at instantiation.
 	 */
 	public Graph(){
-		this.readDataset();
+		this(new File(filename));
+	}
+	
+	/**
+	 * Constructor which reads the given dataset file at instantiation.
+	 * 
+	 * @param dataset File in the labeled record format of the dataset
+	 */
+	public Graph(File dataset){
+		this(dataset, new GraphLoadListener(){});
+	}
+	
+	/**
+	 * Constructor which reads the given dataset file at instantiation,
+	 * reporting its progress to listener. Product and reviewer searches
+	 * may be used as soon as listener.searchable is called, and find the
+	 * reviews read so far until the graph is loaded.
+	 * 
+	 * @param dataset File in the labeled record format of the dataset
+	 * @param listener Receives progress of the load
+	 */
+	public Graph(File dataset, GraphLoadListener listener){
+		this(dataset, listener, EdgeStrategy.CLIQUE);
+	}
+	
+	/**
+	 * Constructor which reads the given dataset file at instantiation,
+	 * connecting reviewers of the same product as strategy prescribes.
+	 * 
+	 * @param dataset File in the labeled record format of the dataset
+	 * @param listener Receives progress of the load
+	 * @param strategy How reviewers of the same product are connected
+	 * @see EdgeStrategy
+	 */
+	public Graph(File dataset, GraphLoadListener listener, EdgeStrategy strategy){
+		this(dataset, numReviews, listener, strategy);
+	}
+	
+	/**
+	 * Constructor which reads at most limit records of the given dataset
+	 * file at instantiation, connecting reviewers of the same product as
+	 * strategy prescribes. Needs no display, so it may run headless.
+	 * 
+	 * @param dataset File in the labeled record format of the dataset
+	 * @param limit Maximum number of records to read, counting malformed ones
+	 * @param listener Receives progress of the load
+	 * @param strategy How reviewers of the same product are connected
+	 * @see EdgeStrategy
+	 */
+	public Graph(File dataset, int limit, GraphLoadListener listener, EdgeStrategy strategy){
+		this.edgeStrategy = strategy;
+		this.adjacency = strategy.kind == EdgeStrategy.Kind.BIPARTITE ? new BipartiteAdjacency() : new Adjacency();
+		this.reviews = new ReviewStore();
+		this.textIndex = new TextIndex();
+		this.summaryIndex = new TextIndex();
+		this.readDataset(dataset, limit, listener);
+		this.loaded = true;
+		listener.loaded(this);
+	}
+	
+	/**
+	 * Constructor for a graph whose parts have already been built,
+	 * as when it is restored from a snapshot. Text statistics are counted
+	 * again only if none are given.
+	 * 
+	 * @see GraphSnapshot
+	 */
+	Graph(ReviewStore reviews, TreeMap<String, Node> nodes, TreeMap<String, Product> products,
+			Adjacency adjacency, TextIndex textIndex, TextIndex summaryIndex, TextStats textStats){
+		this.reviews = reviews;
+		this.nodes = nodes;
+		this.products = products;
+		this.edgeStrategy = EdgeStrategy.CLIQUE;
+		this.adjacency = adjacency;
+		this.textIndex = textIndex;
+		this.summaryIndex = summaryIndex;
+		this.reviewerIndex = new ReviewerIndex(nodes.values());
+		for (int i = 0; i < reviews.size(); i++){
+			productCount = Math.max(productCount, reviews.productOrdinal(i) + 1);
+		}
+		this.textStats = textStats != null ? textStats : TextStats.compute(reviews, Rater.getLexicon());
+		this.rankIndex = RankIndex.build(adjacency);
+		this.connectionPercentiles = NeighborhoodPercentiles.compute(adjacency);
+		this.loaded = true;
+	}
+	
+	/**
+	 * Returns the graph for the default dataset file.
+	 * 
+	 * @return the Graph, restored from its snapshot when possible
+	 * @see open(File)
+	 */
+	public static Graph open(){
+		return open(new File(filename), new GraphLoadListener(){});
+	}
+	
+	/**
+	 * Returns the graph for the default dataset file, reporting progress to listener.
+	 * 
+	 * @param listener Receives progress of the load
+	 * @return the Graph, restored from its snapshot when possible
+	 * @see open(File, GraphLoadListener)
+	 */
+	public static Graph open(GraphLoadListener listener){
+		return open(new File(filename), listener);
+	}
+	
+	/**
+	 * Returns the graph for the given dataset file. It is restored from
+	 * the snapshot next to the file if that snapshot is at least as new as
+	 * the file. Otherwise the graph is built from the file and a new
+	 * snapshot is written for next time.
+	 * 
+	 * @param dataset File in the labeled record format of the dataset
+	 * @param listener Receives progress of the load
+	 * @return the Graph for the dataset
+	 */
+	public static Graph open(File dataset, GraphLoadListener listener){
+		return load(dataset, numReviews, EdgeStrategy.CLIQUE, listener);
+	}
+	
+	/**
+	 * Returns the graph for at most limit records of the given dataset
+	 * file. Graphs with clique edges are restored from and saved to the
+	 * snapshot next to the file, as by open(File, GraphLoadListener); the
+	 * snapshot is only used if it was built with the same limit. Graphs
+	 * with other edge strategies are always built from the file. Unlike
+	 * the other ways of loading a graph, a dataset that cannot be read is
+	 * an error rather than an empty graph.
+	 * 
+	 * @param dataset File in the labeled record format of the dataset
+	 * @param limit Maximum number of records to read, counting malformed ones
+	 * @param strategy How reviewers of the same product are connected
+	 * @param listener Receives progress of the load
+	 * @return the Graph for the dataset
+	 * @throws IOException if there is no usable snapshot and the dataset cannot be read completely
+	 */
+	public static Graph open(File dataset, int limit, EdgeStrategy strategy, GraphLoadListener listener) throws IOException {
+		Graph g = load(dataset, limit, strategy, listener);
+		if (g.readFailure != null){
+			throw new IOException("Cannot read dataset " + dataset + ": " + g.readFailure, g.readFailure);
+		}
+		return g;
+	}
+	
+	/**
+	 * Restores or builds the graph for open, logging rather than throwing
+	 * if the dataset cannot be read
+	 * 
+	 * @return the Graph for the dataset, empty or partial if it could not be read
+	 */
+	private static Graph load(File dataset, int limit, EdgeStrategy strategy, GraphLoadListener listener){
+		if (strategy.kind != EdgeStrategy.Kind.CLIQUE){
+			return new Graph(dataset, limit, listener, strategy);
+		}
+		File snapshot = new File(dataset.getPath() + ".snapshot");
+		if (snapshot.isFile() && snapshot.lastModified() >= dataset.lastModified()){
+			try {
+				long start = System.currentTimeMillis();
+				Graph g = GraphSnapshot.read(snapshot, limit);
+				System.out.println("restored " + snapshot + " in " + (System.currentTimeMillis() - start) + " ms");
+				listener.progress(1);
+				listener.searchable(g);
+				listener.loaded(g);
+				return g;
+			} catch (IOException e){
+				System.out.println(e.getMessage() + "; rebuilding from " + dataset);
+			}
+		}
+		Graph g = new Graph(dataset, limit, listener, strategy);
+		if (g.readFailure == null){
+			try {
+				GraphSnapshot.write(g, snapshot, limit);
+			} catch (IOException e){
+				System.out.println(e.getMessage() + " writing " + snapshot);
+			}
+		}
+		return g;
 	}
 
 	/**
@@ -82,75 +323,141 @@ public class Graph {
 	 * @return the Reviewer corresponding to given userID
 	 */
 	public Reviewer searchForUserID(String userID){
-		for (Node n : nodes.values()){
-			if (n.value.userId.equals(userID)){
-				return n.value;
-			}
+		lock.readLock().lock();
+		try {
+			Node n = reviewerIndex.byUserId(userID);
+			return n == null ? null : n.value;
+		} finally {
+			lock.readLock().unlock();
 		}
-		return null;
 	}
 	
 	/**
 	 * Returns the Reviewer object corresponding to given username
-	 * null if it does not exist.
+	 * null if it does not exist. Usernames need not be unique; if
+	 * several reviewers share it, the one with the lowest ID is returned.
 	 * 
 	 * @param name username identifying user
 	 * @return Reviwer corresponding to given username
+	 * @see searchForUsernames
 	 */
 	public Reviewer searchForUsername(String name){
-		for (Node n : nodes.values()){
-			if (n.value.profileName.toLowerCase().equals(name.toLowerCase())){
-				return n.value;
-			}
+		Reviewer[] matches = searchForUsernames(name);
+		return matches.length == 0 ? null : matches[0];
+	}
+	
+	/**
+	 * Returns every Reviewer with the given username, ignoring case.
+	 * 
+	 * @param name username identifying users
+	 * @return array of matching Reviewers ordered by ID; empty if none exist
+	 */
+	public Reviewer[] searchForUsernames(String name){
+		lock.readLock().lock();
+		try {
+			return reviewerIndex.byName(name);
+		} finally {
+			lock.readLock().unlock();
 		}
-		return null;
 	}
 	
 	/**
 	 * Returns the top n percent of Reviewers, measured by accuracy.
-	 * Results are not ordered in any way.
+	 * Results are ordered from the most accurate reviewer down; reviewers
+	 * with equal accuracy are all kept, in the order they were added.
 	 * 
 	 * @param percentile int representing how many percentiles returned
 	 * @return array of top n percent
+	 * @throws IllegalStateException if the graph is still loading
 	 * @see bottomPercentileReviewers
 	 */
-	private Reviewer[] topPercentileReviewers(int percentile){
-		int num = new Integer((int) (this.nodes.size()*(1.0*percentile)/100));
-		TreeMap<Double, Reviewer> t = new TreeMap<Double, Reviewer>();
-		
-		for (Node n : this.nodes.values()){
-			if (t.size() < num){
-				t.put(n.value.accuracy, n.value);
-			} else if (n.value.accuracy < t.lastEntry().getValue().accuracy){
-				t.remove(t.lastKey());
-				t.put(n.value.accuracy, n.value);
-			}
+	public Reviewer[] topPercentileReviewers(int percentile){
+		checkLoaded();
+		lock.readLock().lock();
+		try {
+			return rankIndex.range(0, (int) (rankIndex.size()*(1.0*percentile)/100));
+		} finally {
+			lock.readLock().unlock();
 		}
-		return t.values().toArray(new Reviewer[0]);
 	}
 	
 	/**
 	 * Returns the bottom n percent of Reviewers, measured by accuracy.
-	 * Results are not ordered in any way.
+	 * Results are ordered from the least accurate reviewer up.
 	 * 
 	 * @param percentile int representing how many percentiles returned
 	 * @return array of bottom n percent
+	 * @throws IllegalStateException if the graph is still loading
 	 * @see topPercentileReviewers
 	 */
-	private Reviewer[] bottomPercentileReviewers(int percentile){
-		int num = new Integer((int) (this.nodes.size()*(1.0*percentile)/100));
-		TreeMap<Double, Reviewer> t = new TreeMap<Double, Reviewer>();
-		
-		for (Node n : this.nodes.values()){
-			if (t.size() < num){
-				t.put(n.value.accuracy, n.value);
-			} else if (n.value.accuracy > t.lastEntry().getValue().accuracy){
-				t.remove(t.lastKey());
-				t.put(n.value.accuracy, n.value);
-			}
+	public Reviewer[] bottomPercentileReviewers(int percentile){
+		checkLoaded();
+		Reviewer[] bottom;
+		lock.readLock().lock();
+		try {
+			bottom = rankIndex.range(rankIndex.size() - (int) (rankIndex.size()*(1.0*percentile)/100), rankIndex.size());
+		} finally {
+			lock.readLock().unlock();
+		}
+		Collections.reverse(Arrays.asList(bottom));
+		return bottom;
+	}
+	
+	/**
+	 * Returns the rank of a Reviewer by accuracy: the number of reviewers
+	 * who are more accurate. Reviewers with equal accuracy share a rank.
+	 * 
+	 * @param r Reviewer to be ranked
+	 * @return rank of r, 0 being the most accurate; -1 if r is not in the graph
+	 * @throws IllegalStateException if the graph is still loading
+	 */
+	public int rankOf(Reviewer r){
+		checkLoaded();
+		lock.readLock().lock();
+		try {
+			Node n = reviewerIndex.byUserId(r.userId);
+			return n == null ? -1 : rankIndex.rankOf(n.index);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns the percentile of a Reviewer's accuracy among the reviewers
+	 * it is connected to: the share of them, counting itself, whose
+	 * accuracy is no higher than its own. Precomputed for every reviewer,
+	 * except with bipartite edges, where it is computed when asked for.
+	 * 
+	 * @param n Node of the reviewer
+	 * @return percentile between 0 and 100
+	 * @throws IllegalStateException if the graph is still loading
+	 */
+	public double connectionPercentile(Node n){
+		checkLoaded();
+		lock.readLock().lock();
+		try {
+			return connectionPercentiles == null ? NeighborhoodPercentiles.of(adjacency, n.index) : connectionPercentiles[n.index];
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns every Reviewer whose accuracy lies in the given range
+	 * 
+	 * @param min lowest accuracy, included
+	 * @param max highest accuracy, included
+	 * @return array of Reviewers ordered from the most accurate
+	 * @throws IllegalStateException if the graph is still loading
+	 */
+	public Reviewer[] reviewersInAccuracyRange(double min, double max){
+		checkLoaded();
+		lock.readLock().lock();
+		try {
+			return rankIndex.inRange(min, max);
+		} finally {
+			lock.readLock().unlock();
 		}
-		return t.values().toArray(new Reviewer[0]);
-
 	}
 	
 	/**
@@ -160,7 +467,12 @@ public class Graph {
 	 * @return Node object where Node.value == r
 	 */
 	public Node getNode(Reviewer r){
-		return nodes.get(r.userId);
+		lock.readLock().lock();
+		try {
+			return reviewerIndex.byUserId(r.userId);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 	
 	/**
@@ -181,38 +493,42 @@ public class Graph {
 	}
 	
 	/**
-	 * Returns the number of nodes in the shortest path between the
+	 * Returns the number of edges in the shortest path between the
 	 * node corresponding to r1 and the node corresponding to r2. The shortest
-	 * path is measure only in number of nodes, not taking edge weight into
-	 * account. Determined using a breadth-first search.
+	 * path is measured only in number of edges, not taking edge weight into
+	 * account. Determined using a breadth-first search from both ends.
 	 * 
 	 * @param r1 A Reviewer
 	 * @param r2 A different Reviewer
-	 * @return number of nodes in shortest path between the two
-	 */
-	private int distanceBetween(Reviewer r1, Reviewer r2){
-		LinkedList<Node> q = new LinkedList<Node>();
-		for (Node n : nodes.values()){
-			n.clearMark();
-		}
-		Node n1 = getNode(r1), n2 = getNode(r2), current;
-		q.add(n1);
-		int i = 0;
-		while (!q.isEmpty()){
-			i++;
-			current = q.remove();
-			for (Node n : current.adjacencies){
-				if (n.getMark() == 0){
-					q.add(n);
-					n.mark(current.getMark()+1);
-				}
-				if (n == n2){
-					return n.getMark();
-				}
+	 * @return number of edges in shortest path between the two; -1 if there is none
+	 * @see DistanceEngine
+	 */
+	public int distanceBetween(Reviewer r1, Reviewer r2){
+		return distanceBetween(r1, r2, DistanceEngine.UNBOUNDED);
+	}
+	
+	/**
+	 * Returns the number of edges in the shortest path between the
+	 * node corresponding to r1 and the node corresponding to r2, if
+	 * that path has no more than maxHops edges. The search stops once
+	 * no such path can exist.
+	 * 
+	 * @param r1 A Reviewer
+	 * @param r2 A different Reviewer
+	 * @param maxHops Longest path of interest
+	 * @return number of edges in shortest path between the two; -1 if there is none of at most maxHops edges
+	 */
+	public int distanceBetween(Reviewer r1, Reviewer r2, int maxHops){
+		lock.readLock().lock();
+		try {
+			Node n1 = getNode(r1), n2 = getNode(r2);
+			if (n1 == null || n2 == null){
+				return -1;
 			}
+			return distanceEngine.get().distance(n1.index, n2.index, maxHops);
+		} finally {
+			lock.readLock().unlock();
 		}
-		System.out.println(i);
-		return -1;
 	}
 	
 	/**
@@ -224,123 +540,374 @@ public class Graph {
 	 * @return number of Reviewers adjacent to r
 	 */
 	private int numConnections(Reviewer r){
-		return nodes.get(r.userId).adjacencies.size();
+		return getNode(r).degree();
 	}
 	
 	/**
 	 * Construct dataset from file. Builds reviewers, products,
-	 * reviews, and all connections between nodes.
+	 * reviews, and all connections between nodes. The file itself
+	 * is parsed in parallel by a DatasetParser, which streams the records
+	 * to a Builder in file order, so only the reviews' columns are kept
+	 * rather than every record. Each chunk of records is added under the
+	 * write lock, which is released between chunks to report progress, so
+	 * product and reviewer searches can run while the file is read; the
+	 * graph is reported searchable once the first chunk has been added.
+	 * Edges are counted in the Adjacency and frozen once every review has
+	 * been read, and the text indexes are built last. The throughput of
+	 * the read and the heap in use once loaded are logged.
 	 * 
-	 * @see filename
+	 * @param dataset File in the labeled record format of the dataset
+	 * @param limit Maximum number of records to read, counting malformed ones
+	 * @param listener Receives progress of the load
+	 * @see DatasetParser
 	 * @see reviewers
 	 * @see products
 	 * @see reviews
 	 */
-	private void readDataset(){
-		ArrayList<Review> reviews = new ArrayList<Review>();
-		ArrayList<Node> sameProductNodes = new ArrayList<Node>();
-		Product sameProduct = null;
-		TreeMap<String, Node> reviewers = new TreeMap<String, Node>();
-		Scanner scanner = null;
-		try{ 				 
-			scanner = new Scanner(new File(filename));
-			String summary, text, userId = null, profileName, help;
-			int score, time, help2;
-			double helpfulness;
-			int progressCounter = 0;
-			String productId = "";
-			Product product;
-			boolean error = false;
-			while (scanner.hasNextLine() && progressCounter < numReviews){
-				productId = scanner.nextLine();
-				if (productId.equals("")){
-					error = false;
-					continue;
-				} else if (error){
-					continue;
-				}
-				productId = removeLabel(productId);
-				try {
-					if (sameProduct != null && productId.equals(sameProduct.productId)){
-						product = sameProduct;
-					} else {
-						product = new Product(productId);
-					}
-					userId = removeLabel(scanner.nextLine());
-					profileName = removeLabel(scanner.nextLine());
-					help = removeLabel(scanner.nextLine());
-					String[] helps = help.split("/");
-					help2 = Integer.parseInt(helps[1]);
-					if (help2 == 0){
-						helpfulness = -1;
-					} else {
-						helpfulness = Double.parseDouble(helps[0]) / help2;
-					}
-					score = (int) Double.parseDouble(removeLabel(scanner.nextLine()));
-					time = Integer.parseInt(removeLabel(scanner.nextLine()));
-					summary = removeLabel(scanner.nextLine());
-					text = removeLabel(scanner.nextLine());
-					
-					Review review = new Review(product, userId, helpfulness, score, time, summary, text);
-					reviews.add(review);
-					
-					Reviewer reviewer = new Reviewer(userId, profileName);
-					Node currentNode = new Node(reviewer);
-					
-					if (!reviewers.containsKey(userId)){
-						reviewers.put(userId, currentNode);
-						reviewer.addReview(review);
-					} else {
-						reviewers.get(userId).value.addReview(review);
-					}
-					
-					if (sameProductNodes.size() > 0){
-						if (review.product.equals(sameProduct)){
-							for (Node previousNode : sameProductNodes){
-								previousNode.incrementAdjacency(currentNode);
-								currentNode.incrementAdjacency(previousNode);
-							}
-							sameProductNodes.add(currentNode);
-							products.get(sameProduct.productId).addReview(review);
-						} else {
-							sameProductNodes.clear();
-							sameProductNodes.add(currentNode);
-							sameProduct = review.product;
-							product.addReview(review);
-							products.put(product.productId, product);
+	private void readDataset(File dataset, int limit, GraphLoadListener listener){
+		this.reviewerIndex = new ReviewerIndex();
+		Builder builder = new Builder();
+		this.nodes = builder.reviewers;
+		boolean[] searchable = {false};
+		long buildStart = System.currentTimeMillis();
+		DatasetParser parser = new DatasetParser(dataset, limit);
+		lock.writeLock().lock();
+		try {
+			try {
+				parser.parse(f -> {
+					lock.writeLock().unlock();
+					try {
+						listener.progress((PARSE_SHARE + BUILD_SHARE) * f);
+						if (!searchable[0]){
+							searchable[0] = true;
+							listener.searchable(this);
 						}
-					} else {
-						products.put(product.productId, product);
-						sameProductNodes.add(currentNode);
-						sameProduct = review.product;
-						product.addReview(review);
-					}
-					
-					if (progressCounter % 1000 == 0){
-						System.out.println((1.0*progressCounter)/numReviews);
-						UserInterface.updateProgressBar((1.0*progressCounter)/numReviews);
+					} finally {
+						lock.writeLock().lock();
 					}
-					
-				} catch (java.lang.NumberFormatException e){
-					e.printStackTrace();
-					System.out.println(productId + " " + userId);
-					error = true;
-				} catch (java.lang.ArrayIndexOutOfBoundsException e){
-					e.printStackTrace();
-					System.out.println(productId + " " + userId);
-					error = true;
-				} finally {
-					progressCounter++;
-				}
+				}, builder);
+			} catch (IOException e){ 											//in case the file does not exist
+				System.out.println(e.getMessage() + " inputting from " + dataset);
+				readFailure = e;
 			}
-			System.out.println("done reading");
-			this.reviews = reviews.toArray(new Review[0]);
-			this.nodes = reviewers;
-		} catch (FileNotFoundException e){ 									//in case the file does not exist
-			System.out.println(e.getMessage() + " inputting from " + filename);
+			long readTime = Math.max(1, System.currentTimeMillis() - buildStart);
+			System.out.printf("read %d records, %.1f MB in %d ms: %.0f records/s, %.1f MB/s%n", reviews.size(), parser.bytesRead() / 1e6,
+					readTime, reviews.size() * 1000.0 / readTime, parser.bytesRead() / 1e3 / readTime);
+			adjacency.freeze();
+			System.out.println("built " + reviews.size() + " reviews, " + (edgeStrategy.kind == EdgeStrategy.Kind.BIPARTITE ? "" : adjacency.edgeCount() + " edges, ")
+					+ adjacency.storedEntries() + " stored entries with " + edgeStrategy + " edges in " + (System.currentTimeMillis() - buildStart) + " ms");
+			finalizeAccuracy();
+			long statsStart = System.currentTimeMillis();
+			this.textStats = TextStats.compute(reviews, Rater.getLexicon());
+			System.out.println("counted text statistics in " + (System.currentTimeMillis() - statsStart) + " ms");
 		} finally {
-			scanner.close();
+			lock.writeLock().unlock();
 		}
+		System.out.println("done reading");
+		if (!searchable[0]){
+			listener.searchable(this);
+		}
+		
+		int n = reviews.size();
+		for (int i = 0; i < n; i++){
+			textIndex.add(i, reviews.text(i));
+			summaryIndex.add(i, reviews.summary(i));
+			if (i % 1000 == 0){
+				listener.progress(PARSE_SHARE + BUILD_SHARE + (1 - PARSE_SHARE - BUILD_SHARE) * i / n);
+			}
+		}
+		textIndex.trim();
+		summaryIndex.trim();
+		Runtime runtime = Runtime.getRuntime();
+		System.out.println("loaded in " + (System.currentTimeMillis() - buildStart) + " ms, heap in use "
+				+ (runtime.totalMemory() - runtime.freeMemory()) / (1 << 20) + " MB of " + runtime.maxMemory() / (1 << 20) + " MB");
+		listener.progress(1);
+	}
+	
+	/**
+	 * Adds the records of the dataset to the graph as they are parsed, in
+	 * file order. A run of records with the same product ID is one product
+	 * listing, and its reviewers are connected as they are read.
+	 * 
+	 * Product IDs are mapped to dense ids by an IdentifierPool, so a record
+	 * is matched to its product listing by comparing ints, and every
+	 * listing keeps the one pooled String of its ID. Reviewers are found
+	 * and added through the graph's ReviewerIndex, which pools user IDs
+	 * the same way.
+	 */
+	private class Builder implements Consumer<ReviewRecord> {
+		private final TreeMap<String, Node> reviewers = new TreeMap<String, Node>();
+		private final IdentifierPool productIds = new IdentifierPool();
+		private final ArrayList<Node> sameProductNodes = new ArrayList<Node>();
+		private Product sameProduct = null;
+		private int sameProductId = -1;
+		
+		@Override
+		public void accept(ReviewRecord record){
+			int productId = productIds.id(record.productId);
+			Product product;
+			if (productId == sameProductId){
+				product = sameProduct;
+			} else {
+				product = new Product(productIds.get(productId));
+				product.ordinal = productCount++;
+				products.put(product.productId, product);
+				sameProductNodes.clear();
+				sameProduct = product;
+				sameProductId = productId;
+			}
+			
+			Node currentNode = reviewerIndex.byUserId(record.userId);
+			if (currentNode == null){
+				currentNode = new Node(new Reviewer(record.userId, record.profileName), adjacency);
+				reviewers.put(currentNode.value.userId, currentNode);
+				reviewerIndex.add(currentNode);
+			}
+			int ordinal = reviews.add(product, currentNode, record.score, record.helpfulness, record.time, record.summary, record.text);
+			currentNode.value.addReview(reviews, ordinal);
+			product.addReview(reviews, ordinal);
+			
+			link(currentNode, sameProductNodes, product);
+			sameProductNodes.add(currentNode);
+		}
+	}
+	
+	/**
+	 * Adds one new review to the graph.
+	 * 
+	 * @param record Review read from the labeled record format
+	 * @throws IllegalStateException if the graph is still loading
+	 * @see addReviews
+	 */
+	public void addReview(ReviewRecord record){
+		addReviews(Collections.singletonList(record));
+	}
+	
+	/**
+	 * Adds new reviews to the graph without rebuilding it. Each review
+	 * joins the current listing of its product, or a new product, and
+	 * its reviewer is created if it does not exist yet. The reviewer
+	 * gains an edge to every other reviewer of the product, and the
+	 * product's average and the text indexes are updated. Every reviewer
+	 * of a changed product has its accuracy recomputed, giving the same
+	 * result as finalizeAccuracy.
+	 * 
+	 * @param records Reviews read from the labeled record format, in the order they were posted
+	 * @throws IllegalStateException if the graph is still loading
+	 */
+	public void addReviews(List<ReviewRecord> records){
+		checkLoaded();
+		lock.writeLock().lock();
+		try {
+			appendAll(records);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Adds new reviews to the graph; the caller holds the write lock
+	 * 
+	 * @param records Reviews read from the labeled record format, in the order they were posted
+	 */
+	private void appendAll(List<ReviewRecord> records){
+		LinkedHashSet<Product> changed = new LinkedHashSet<Product>();
+		for (ReviewRecord record : records){
+			changed.add(append(record));
+		}
+		
+		// The averages of the changed products moved, so every reviewer of them is recomputed
+		LinkedHashSet<Reviewer> affected = new LinkedHashSet<Reviewer>();
+		for (Product p : changed){
+			for (int ordinal : p.lastReviewOrdinals(Integer.MAX_VALUE)){
+				affected.add(adjacency.node(reviews.reviewerIndex(ordinal)).value);
+			}
+		}
+		int[] changedNodes = new int[affected.size()];
+		int k = 0;
+		for (Reviewer r : affected){
+			r.recomputeAccuracy();
+			changedNodes[k++] = getNode(r).index;
+		}
+		rankIndex.update(changedNodes);
+		if (connectionPercentiles != null){
+			connectionPercentiles = NeighborhoodPercentiles.refresh(connectionPercentiles, adjacency, changedNodes);
+		}
+	}
+	
+	/**
+	 * Recomputes the average score of every product, then the accuracy of
+	 * every reviewer against those final averages, then ranks the reviewers
+	 * by it globally and among their neighbors. Runs in parallel over the columns of the reviews; called once
+	 * the dataset has been read, under the write lock.
+	 * 
+	 * @return time taken in milliseconds
+	 * @see AccuracyPass
+	 */
+	private long finalizeAccuracy(){
+		long start = System.currentTimeMillis();
+		new AccuracyPass(reviews, adjacency, productCount).run();
+		rankIndex = RankIndex.build(adjacency);
+		if (edgeStrategy.kind != EdgeStrategy.Kind.BIPARTITE){
+			connectionPercentiles = NeighborhoodPercentiles.compute(adjacency);
+		}
+		long elapsed = System.currentTimeMillis() - start;
+		System.out.println("finalized accuracy of " + adjacency.size() + " reviewers in " + elapsed + " ms");
+		return elapsed;
+	}
+	
+	/**
+	 * Links one new review into products, reviewers, edges and indexes
+	 * 
+	 * @param record Review to be added
+	 * @return the Product reviewed
+	 */
+	private Product append(ReviewRecord record){
+		Product product = products.get(record.productId);
+		if (product == null){
+			product = new Product(record.productId);
+			product.ordinal = productCount++;
+			products.put(product.productId, product);
+		}
+		
+		Node node = reviewerIndex.byUserId(record.userId);
+		if (node == null){
+			node = new Node(new Reviewer(record.userId, record.profileName), adjacency);
+			nodes.put(record.userId, node);
+			reviewerIndex.add(node);
+		}
+		
+		// Earlier reviewers in the order the build linked them, so a cap keeps the same ones as a rebuild would
+		ArrayList<Node> earlier = new ArrayList<Node>();
+		if (edgeStrategy.kind != EdgeStrategy.Kind.BIPARTITE){
+			for (int other : product.lastReviewOrdinals(edgeStrategy.cap)){
+				earlier.add(adjacency.node(reviews.reviewerIndex(other)));
+			}
+		}
+		int ordinal = reviews.add(product, node, record.score, record.helpfulness, record.time, record.summary, record.text);
+		node.value.addReview(reviews, ordinal);
+		link(node, earlier, product);
+		product.addReview(reviews, ordinal);
+		
+		textIndex.add(ordinal, record.text);
+		summaryIndex.add(ordinal, record.summary);
+		textStats.add(reviews, ordinal);
+		return product;
+	}
+	
+	/**
+	 * Connects the author of a new review to the authors of earlier
+	 * reviews of the same product, as the edge strategy prescribes
+	 * 
+	 * @param current Node of the new review's author
+	 * @param earlier Nodes of the authors of earlier reviews of the product, oldest first
+	 * @param product Product reviewed
+	 */
+	private void link(Node current, List<Node> earlier, Product product){
+		if (edgeStrategy.kind == EdgeStrategy.Kind.BIPARTITE){
+			((BipartiteAdjacency) adjacency).addReview(current.index, product.ordinal);
+			return;
+		}
+		for (int i = Math.max(0, earlier.size() - edgeStrategy.cap); i < earlier.size(); i++){
+			Node previous = earlier.get(i);
+			if (previous != current){
+				previous.incrementAdjacency(current);
+				current.incrementAdjacency(previous);
+			}
+		}
+	}
+	
+	/**
+	 * Whether the graph has been completely loaded. Until then only the
+	 * product and reviewer searches may be used, and they find the reviews
+	 * read so far.
+	 * 
+	 * @return true once loading has finished
+	 */
+	public boolean isLoaded(){
+		return loaded;
+	}
+	
+	private void checkLoaded(){
+		if (!loaded){
+			throw new IllegalStateException("Graph is still loading");
+		}
+	}
+	
+	/**
+	 * Getter for the strategy used to connect reviewers of the same product
+	 * 
+	 * @return the edge strategy
+	 */
+	public EdgeStrategy getEdgeStrategy(){
+		return edgeStrategy;
+	}
+	
+	/**
+	 * Number of entries held to represent the edges, a measure of their memory use
+	 * 
+	 * @return number of stored entries
+	 * @see Adjacency
+	 */
+	public long storedEdgeEntries(){
+		return adjacency.storedEntries();
+	}
+	
+	/**
+	 * Getter for the weighted edges between nodes
+	 * 
+	 * @return the graph's Adjacency
+	 */
+	Adjacency getAdjacency(){
+		return adjacency;
+	}
+	
+	/**
+	 * Loads the text statistics counted for a review of this graph into a kernel
+	 * 
+	 * @param review Review to be rated
+	 * @param keywords Lexicon the review is rated with
+	 * @param kernel Kernel receiving the counts
+	 * @return false if the review is not in this graph or its keywords were not counted for this lexicon
+	 */
+	boolean loadTextStats(Review review, Lexicon keywords, RatingKernel kernel){
+		lock.readLock().lock();
+		try {
+			if (textStats == null || review.store != reviews || !textStats.holds(review, keywords)){
+				return false;
+			}
+			textStats.load(review, kernel);
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Getter for the index over review text
+	 * 
+	 * @return the text TextIndex
+	 */
+	TextIndex getTextIndex(){
+		return textIndex;
+	}
+	
+	/**
+	 * Getter for the statistics counted from each review's text
+	 * 
+	 * @return the TextStats of the reviews
+	 */
+	TextStats getTextStats(){
+		return textStats;
+	}
+	
+	/**
+	 * Getter for the index over review summaries
+	 * 
+	 * @return the summary TextIndex
+	 */
+	TextIndex getSummaryIndex(){
+		return summaryIndex;
 	}
 	
 	/**
@@ -351,39 +918,33 @@ public class Graph {
 	 * @return Array of all reviews which meet requirement
 	 */
 	private Review[] filterByProductAmount(int minReviews){
-		TreeSet<String> tree = new TreeSet<String>();
 		ArrayList<Review> list = new ArrayList<Review>();
 		for (Product p : products.values()){
 			if (p.getNumReviews() >= minReviews){
-				tree.add(p.productId);
-			}
-		}
-		for (Review r : reviews){
-			if (tree.contains(r.product.productId)){
-				list.add(r);
+				Collections.addAll(list, p.getReviews());
 			}
 		}
 		return list.toArray(new Review[0]);
 	}
 	
 	/**
-	 * Returns all reviews for product corresponding to given productID
+	 * Returns all reviews for product corresponding to given productID,
+	 * ordered by time.
 	 * 
 	 * @param productID Identifies Product in question
 	 * @return Array of all relevant Reviews
 	 */
 	public Review[] searchByProductId(String productID){
-		Product p = products.get(productID);
-		ArrayList<Review> results = new ArrayList<Review>();
-		if (p == null){
-			return new Review[] {};
-		}
-		for (Review r : reviews){
-			if (r.product == p){
-				results.add(r);
+		lock.readLock().lock();
+		try {
+			Product p = products.get(productID);
+			if (p == null){
+				return new Review[] {};
 			}
+			return p.getReviews();
+		} finally {
+			lock.readLock().unlock();
 		}
-		return results.toArray(new Review[0]);
 	}
 	
 	/**
@@ -394,14 +955,66 @@ public class Graph {
 	 */
 	private Review[] searchByTextString(String substring){
 		ArrayList<Review> results = new ArrayList<Review>();
-		for (Review r : reviews){
-			if (r.text.contains(substring)){
-				results.add(r);
+		for (int i = 0; i < reviews.size(); i++){
+			if (reviews.text(i).contains(substring)){
+				results.add(reviews.get(i));
 			}
 		}
 		return results.toArray(new Review[] {});
 	}
 	
+	/**
+	 * Returns all reviews whose text matches the given query, using
+	 * the inverted index. Terms are compared ignoring case.
+	 * 
+	 * @param query Terms to be searched for in text
+	 * @param mode Whether all terms, any term, or the exact phrase must appear
+	 * @return An array of all relevant Reviews, in dataset order
+	 * @throws IllegalStateException if the graph is still loading
+	 */
+	public Review[] searchByTextQuery(String query, TextIndex.Mode mode){
+		checkLoaded();
+		lock.readLock().lock();
+		try {
+			return reviewsAt(textIndex.search(query, mode));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns all reviews whose summary matches the given query, using
+	 * the inverted index. Terms are compared ignoring case.
+	 * 
+	 * @param query Terms to be searched for in summaries
+	 * @param mode Whether all terms, any term, or the exact phrase must appear
+	 * @return An array of all relevant Reviews, in dataset order
+	 * @throws IllegalStateException if the graph is still loading
+	 */
+	public Review[] searchBySummaryQuery(String query, TextIndex.Mode mode){
+		checkLoaded();
+		lock.readLock().lock();
+		try {
+			return reviewsAt(summaryIndex.search(query, mode));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns the reviews at the given positions in reviews
+	 * 
+	 * @param ordinals positions in reviews
+	 * @return the Reviews at those positions
+	 */
+	private Review[] reviewsAt(int[] ordinals){
+		Review[] results = new Review[ordinals.length];
+		for (int i = 0; i < ordinals.length; i++){
+			results[i] = reviews.get(ordinals[i]);
+		}
+		return results;
+	}
+	
 	/**
 	 * Returns all Reviews whose summary contains the given substring
 	 * 
@@ -410,9 +1023,9 @@ public class Graph {
 	 */
 	private Review[] searchBySummaryString(String substring){
 		ArrayList<Review> results = new ArrayList<Review>();
-		for (Review r : reviews){
-			if (r.summary.contains(substring)){
-				results.add(r);
+		for (int i = 0; i < reviews.size(); i++){
+			if (reviews.summary(i).contains(substring)){
+				results.add(reviews.get(i));
 			}
 		}
 		return results.toArray(new Review[] {});
@@ -427,13 +1040,10 @@ public class Graph {
 	 * @return int which is time in seconds since first time product was reviewed.
 	 */
 	public int timeIntoProductLife(Review givenRevw){
-		int firstTime = givenRevw.time;
-		for (Review r : this.reviews){
-			if (r.product == givenRevw.product && r.time < firstTime){
-				firstTime = r.time;
-			}
+		if (givenRevw.product == null){
+			return 0;
 		}
-		return givenRevw.time - firstTime;
+		return givenRevw.time - Math.min(givenRevw.time, givenRevw.product.getFirstReviewTime());
 	}
 	
 	/**
@@ -445,37 +1055,19 @@ public class Graph {
 	 * @return int which is time in seconds since first Review written by Review's author.
 	 */
 	public int timeIntoReviewerLife(Review givenRevw){
-		Reviewer reviewer = nodes.get(givenRevw.userId).value;
-		if (reviewer == null || reviewer.reviews.size() < 1){
-			return 0;
-		}
-		int firstTime = givenRevw.time;
-		for (Review r : reviewer.reviews){
-			if (r.time < firstTime){
-				firstTime = r.time;
-			}
-		}
-		return givenRevw.time - firstTime;
-	}
-	
-	/**
-	 * Given a string, return the portion after the first occurence of the substring ": "
-	 * 
-	 * @param line Line of text to be searched
-	 * @return portion after the label
-	 */
-	private static String removeLabel(String line){
-		int split = 0;
+		lock.readLock().lock();
 		try {
-			for (int j=0; j < line.length(); j++){
-				if (line.charAt(j) == ':' && line.charAt(j+1) == ' '){
-					split = j+2;
-					break;
-				}
+			Reviewer reviewer = searchForUserID(givenRevw.userId);
+			if (reviewer == null || reviewer.reviews.size() < 1){
+				return 0;
 			}
-		} catch (StringIndexOutOfBoundsException e){
-			throw new ArrayIndexOutOfBoundsException();
+			int firstTime = givenRevw.time;
+			for (int i = 0; i < reviewer.reviews.size(); i++){
+				firstTime = Math.min(firstTime, reviewer.reviews.time(i));
+			}
+			return givenRevw.time - firstTime;
+		} finally {
+			lock.readLock().unlock();
 		}
-		return line.substring(split);
 	}
-}
+}
\ No newline at end of file
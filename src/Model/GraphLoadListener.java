@@ -0,0 +1,41 @@
+package Model;
+
+/**
+ * Receives progress while a Graph is being loaded. Called on the loading
+ * thread; implementations that touch a user interface must hand the
+ * update over to its own thread.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ *
+ */
+public interface GraphLoadListener {
+	/**
+	 * Called as loading progresses
+	 *
+	 * @param fraction Portion of the load completed, between 0 and 1
+	 */
+	default void progress(double fraction){
+	}
+
+	/**
+	 * Called once the first part of the dataset has been read. From then
+	 * on the product and reviewer searches of the graph may be used while
+	 * the rest is read: they find the reviews read so far, and progress
+	 * keeps being reported. Accuracies and ranks are final, and the other
+	 * queries usable, only once loaded is called.
+	 *
+	 * @param graph Graph being loaded
+	 */
+	default void searchable(Graph graph){
+	}
+
+	/**
+	 * Called once the graph is completely loaded
+	 *
+	 * @param graph Graph that was loaded
+	 */
+	default void loaded(Graph graph){
+	}
+}
@@ -0,0 +1,355 @@
+package Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+
+/**
+ * Versioned binary image of a fully built Graph: reviews, products with
+ * their score aggregates, reviewers with their accuracy, the weighted
+ * adjacencies, the text indexes and the text statistics. Numeric data is
+ * stored as whole primitive columns, and the reviews as the columns and
+ * text region of their ReviewStore, so that a snapshot is restored with
+ * bulk reads rather than by parsing the dataset again.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ *
+ */
+public class GraphSnapshot {
+	/**
+	 * Marks a file as a graph snapshot ("TRGS")
+	 */
+	private static final int MAGIC = 0x54524753;
+	/**
+	 * Format version. Snapshots written with any other version are rebuilt.
+	 */
+	static final int VERSION = 6;
+
+	/**
+	 * Writes the graph to file, replacing any previous snapshot there.
+	 *
+	 * @param graph Graph to be saved
+	 * @param file Location of the snapshot
+	 * @param limit Review limit the graph was read with
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	public static void write(Graph graph, File file, int limit) throws IOException {
+		if (graph.getAdjacency() instanceof BipartiteAdjacency){
+			throw new IOException("Graphs with bipartite edges cannot be saved");
+		}
+		// Compacting replaces the edge arrays that queries read, so it takes the write lock,
+		// which is downgraded to the read lock so no append changes the graph while it is written
+		graph.lock.writeLock().lock();
+		try {
+			graph.getAdjacency().compact();
+			graph.lock.readLock().lock();
+		} finally {
+			graph.lock.writeLock().unlock();
+		}
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			try (Output out = new Output(temp)){
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(limit);
+
+				// Products by ordinal, including any that share an ID with a later run of reviews
+				ReviewStore reviews = graph.reviews;
+				int productCount = 0;
+				for (int i = 0; i < reviews.size(); i++){
+					productCount = Math.max(productCount, reviews.productOrdinal(i) + 1);
+				}
+				Product[] products = new Product[productCount];
+				for (int i = 0; i < reviews.size(); i++){
+					products[reviews.productOrdinal(i)] = reviews.product(i);
+				}
+				out.writeInt(products.length);
+				for (Product p : products){
+					out.writeString(p.productId);
+					out.writeInt(p.getScoreSum());
+					out.writeInt(p.getNumReviews());
+				}
+
+				// Reviewers in node index order
+				Adjacency adjacency = graph.getAdjacency();
+				out.writeInt(adjacency.size());
+				double[] accuracy = new double[adjacency.size()];
+				for (int v = 0; v < adjacency.size(); v++){
+					Reviewer reviewer = adjacency.node(v).value;
+					out.writeString(reviewer.userId);
+					out.writeString(reviewer.profileName);
+					accuracy[v] = reviewer.accuracy;
+				}
+				out.writeDoubles(accuracy, accuracy.length);
+
+				// Reviews as the columns and text region of the store
+				reviews.writeTo(out);
+
+				out.writeInts(adjacency.offsets, adjacency.size() + 1);
+				out.writeInts(adjacency.neighbors, adjacency.neighbors.length);
+				out.writeInts(adjacency.weights, adjacency.weights.length);
+
+				graph.getTextIndex().writeTo(out);
+				graph.getSummaryIndex().writeTo(out);
+
+				// Text statistics last, as they are not read if the lexicon has changed
+				graph.getTextStats().writeTo(out);
+			}
+		} finally {
+			graph.lock.readLock().unlock();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Restores a graph from file
+	 *
+	 * @param file Location of the snapshot
+	 * @param limit Review limit the caller expects the graph to have been read with
+	 * @return the restored Graph
+	 * @throws IOException if the snapshot cannot be read, or was written by another version or with another limit
+	 */
+	public static Graph read(File file, int limit) throws IOException {
+		try (Input in = new Input(file)){
+			if (in.readInt() != MAGIC){
+				throw new IOException(file + " is not a graph snapshot");
+			}
+			int version = in.readInt();
+			if (version != VERSION){
+				throw new IOException("Snapshot version " + version + " is not supported");
+			}
+			if (in.readInt() != limit){
+				throw new IOException("Snapshot was built with a different review limit");
+			}
+
+			Product[] products = new Product[in.readInt()];
+			TreeMap<String, Product> productMap = new TreeMap<String, Product>();
+			for (int i = 0; i < products.length; i++){
+				products[i] = new Product(in.readString(), in.readInt(), in.readInt());
+				products[i].ordinal = i;
+				productMap.put(products[i].productId, products[i]);
+			}
+
+			int numReviewers = in.readInt();
+			Adjacency adjacency = new Adjacency(numReviewers);
+			Reviewer[] reviewers = new Reviewer[numReviewers];
+			TreeMap<String, Node> nodes = new TreeMap<String, Node>();
+			for (int v = 0; v < numReviewers; v++){
+				reviewers[v] = new Reviewer(in.readString(), in.readString());
+				nodes.put(reviewers[v].userId, new Node(reviewers[v], adjacency));
+			}
+			double[] accuracy = in.readDoubles(numReviewers);
+			for (int v = 0; v < numReviewers; v++){
+				reviewers[v].accuracy = accuracy[v];
+			}
+
+			ReviewStore reviews = ReviewStore.readFrom(in, products, reviewers);
+			for (int i = 0; i < reviews.size(); i++){
+				products[reviews.productOrdinal(i)].attachReview(reviews, i);
+				reviewers[reviews.reviewerIndex(i)].addReview(reviews, i);
+			}
+
+			int[] offsets = in.readInts(numReviewers + 1);
+			adjacency.restore(offsets, in.readInts(offsets[numReviewers]), in.readInts(offsets[numReviewers]));
+
+			TextIndex textIndex = TextIndex.readFrom(in), summaryIndex = TextIndex.readFrom(in);
+			TextStats textStats = TextStats.readFrom(in, Rater.getLexicon());
+			return new Graph(reviews, nodes, productMap, adjacency, textIndex, summaryIndex, textStats);
+		}
+	}
+
+	/**
+	 * Buffered writer of primitive columns to a file channel
+	 */
+	static class Output implements AutoCloseable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+		Output(File file) throws IOException {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		void writeInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void writeInts(int[] values, int length) throws IOException {
+			writeInt(length);
+			for (int i = 0; i < length;){
+				ensure(4);
+				int chunk = Math.min(length - i, buffer.remaining() / 4);
+				buffer.asIntBuffer().put(values, i, chunk);
+				buffer.position(buffer.position() + chunk * 4);
+				i += chunk;
+			}
+		}
+
+		void writeDoubles(double[] values, int length) throws IOException {
+			writeInt(length);
+			for (int i = 0; i < length;){
+				ensure(8);
+				int chunk = Math.min(length - i, buffer.remaining() / 8);
+				buffer.asDoubleBuffer().put(values, i, chunk);
+				buffer.position(buffer.position() + chunk * 8);
+				i += chunk;
+			}
+		}
+
+		void writeBytes(byte[] values, int length) throws IOException {
+			writeInt(length);
+			for (int i = 0; i < length;){
+				ensure(1);
+				int chunk = Math.min(length - i, buffer.remaining());
+				buffer.put(values, i, chunk);
+				i += chunk;
+			}
+		}
+
+		/**
+		 * Writes a string as its UTF-8 bytes; null is written as length -1
+		 */
+		void writeString(String value) throws IOException {
+			if (value == null){
+				writeInt(-1);
+			} else {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeBytes(bytes, bytes.length);
+			}
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes){
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()){
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Buffered reader of primitive columns from a file channel
+	 */
+	static class Input implements AutoCloseable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+		private byte[] scratch = new byte[256];
+
+		Input(File file) throws IOException {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			buffer.limit(0);
+		}
+
+		int readInt() throws IOException {
+			require(4);
+			return buffer.getInt();
+		}
+
+		int[] readInts(int expected) throws IOException {
+			int length = readLength(expected);
+			int[] values = new int[length];
+			for (int i = 0; i < length;){
+				require(4);
+				int chunk = Math.min(length - i, buffer.remaining() / 4);
+				buffer.asIntBuffer().get(values, i, chunk);
+				buffer.position(buffer.position() + chunk * 4);
+				i += chunk;
+			}
+			return values;
+		}
+
+		double[] readDoubles(int expected) throws IOException {
+			int length = readLength(expected);
+			double[] values = new double[length];
+			for (int i = 0; i < length;){
+				require(8);
+				int chunk = Math.min(length - i, buffer.remaining() / 8);
+				buffer.asDoubleBuffer().get(values, i, chunk);
+				buffer.position(buffer.position() + chunk * 8);
+				i += chunk;
+			}
+			return values;
+		}
+
+		byte[] readBytes() throws IOException {
+			int length = readInt();
+			byte[] values = new byte[length];
+			readFully(values, length);
+			return values;
+		}
+
+		String readString() throws IOException {
+			int length = readInt();
+			if (length < 0){
+				return null;
+			}
+			if (length > scratch.length){
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			readFully(scratch, length);
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+
+		private int readLength(int expected) throws IOException {
+			int length = readInt();
+			if (expected >= 0 && length != expected){
+				throw new IOException("Snapshot is corrupt: expected " + expected + " values, found " + length);
+			}
+			return length;
+		}
+
+		private void readFully(byte[] values, int length) throws IOException {
+			for (int i = 0; i < length;){
+				require(1);
+				int chunk = Math.min(length - i, buffer.remaining());
+				buffer.get(values, i, chunk);
+				i += chunk;
+			}
+		}
+
+		/**
+		 * Makes sure at least the given number of bytes are buffered
+		 */
+		private void require(int bytes) throws IOException {
+			if (buffer.remaining() >= bytes){
+				return;
+			}
+			buffer.compact();
+			while (buffer.position() < bytes){
+				if (channel.read(buffer) < 0){
+					throw new IOException("Snapshot is truncated");
+				}
+			}
+			buffer.flip();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary giving each distinct identifier a dense int id, in the order
+ * identifiers are first seen. Every later occurrence of an identifier maps
+ * to the same id and the same String, so one copy of it is kept however
+ * many records repeat it. find and get may be called by several threads
+ * at once, but not while id is adding an identifier.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ *
+ */
+class IdentifierPool {
+	private String[] values = new String[16];
+	/**
+	 * Open addressing table of ids plus one, 0 marking an empty slot
+	 */
+	private int[] slots = new int[32];
+	private int size = 0;
+
+	/**
+	 * Returns the id of an identifier, giving it the next id if it is new
+	 *
+	 * @param value Identifier; not null
+	 * @return id of value, between 0 and size() - 1
+	 */
+	int id(String value){
+		int slot = slot(value);
+		if (slots[slot] != 0){
+			return slots[slot] - 1;
+		}
+		if (size == values.length){
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size] = value;
+		slots[slot] = ++size;
+		if (size * 2 > slots.length){
+			rehash(slots.length * 2);
+		}
+		return size - 1;
+	}
+
+	/**
+	 * Returns the id of an identifier without adding it
+	 *
+	 * @param value Identifier; not null
+	 * @return id of value, -1 if it has none
+	 */
+	int find(String value){
+		return slots[slot(value)] - 1;
+	}
+
+	/**
+	 * Resolves an id back to its identifier
+	 *
+	 * @param id An id given by this pool
+	 * @return the first String seen with that identifier
+	 */
+	String get(int id){
+		return values[id];
+	}
+
+	/**
+	 * Getter for the number of distinct identifiers
+	 *
+	 * @return number of ids given
+	 */
+	int size(){
+		return size;
+	}
+
+	/**
+	 * Finds the slot holding value, or the empty slot where it belongs
+	 */
+	private int slot(String value){
+		int mask = slots.length - 1, h = value.hashCode();
+		int slot = (h ^ (h >>> 16)) & mask;
+		while (slots[slot] != 0 && !values[slots[slot] - 1].equals(value)){
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int capacity){
+		slots = new int[capacity];
+		for (int id = 0; id < size; id++){
+			slots[slot(values[id])] = id + 1;
+		}
+	}
+}
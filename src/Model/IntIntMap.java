@@ -0,0 +1,155 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from non-negative int keys to int values.
+ * Keys and values are kept in primitive arrays, so nothing is boxed.
+ * Used to accumulate edge weights while a Graph is being built.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Adjacency
+ *
+ */
+public class IntIntMap {
+	private static final int EMPTY = -1;
+	private int[] keys, values;
+	private int size = 0;
+
+	/**
+	 * Constructs an empty map with room for a few entries
+	 */
+	public IntIntMap(){
+		this(4);
+	}
+
+	/**
+	 * Constructs an empty map sized for the expected number of entries
+	 *
+	 * @param expected Number of entries expected
+	 */
+	public IntIntMap(int expected){
+		int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Adds one to the value mapped to by key, inserting it with value 1 if absent
+	 *
+	 * @param key Non-negative key
+	 * @return New value for key
+	 */
+	public int increment(int key){
+		return add(key, 1);
+	}
+
+	/**
+	 * Adds delta to the value mapped to by key, inserting it if absent
+	 *
+	 * @param key Non-negative key
+	 * @param delta Amount to add
+	 * @return New value for key
+	 */
+	public int add(int key, int delta){
+		int slot = slot(key);
+		if (keys[slot] == EMPTY){
+			keys[slot] = key;
+			values[slot] = delta;
+			if (++size * 2 > keys.length){
+				grow();
+			}
+			return delta;
+		}
+		return values[slot] += delta;
+	}
+
+	/**
+	 * Getter for the value mapped to by key
+	 *
+	 * @param key Non-negative key
+	 * @return value for key, 0 if absent
+	 */
+	public int get(int key){
+		int slot = slot(key);
+		return keys[slot] == EMPTY ? 0 : values[slot];
+	}
+
+	/**
+	 * Getter for the number of keys in the map
+	 *
+	 * @return number of keys
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Copies all keys, in ascending order, and their values into the given arrays
+	 *
+	 * @param keysOut Array receiving the keys
+	 * @param valuesOut Array receiving the values
+	 * @param offset Position in both arrays to start writing at
+	 */
+	public void copySorted(int[] keysOut, int[] valuesOut, int offset){
+		int n = 0;
+		for (int k : keys){
+			if (k != EMPTY){
+				keysOut[offset + n++] = k;
+			}
+		}
+		Arrays.sort(keysOut, offset, offset + n);
+		for (int i = offset; i < offset + n; i++){
+			valuesOut[i] = get(keysOut[i]);
+		}
+	}
+
+	/**
+	 * Receives the entries of a map
+	 */
+	public interface EntryConsumer {
+		/**
+		 * @param key a key of the map
+		 * @param value the value mapped to by key
+		 */
+		void accept(int key, int value);
+	}
+
+	/**
+	 * Passes every entry to the consumer, in no particular order
+	 *
+	 * @param consumer Receives each key and its value
+	 */
+	public void forEach(EntryConsumer consumer){
+		for (int i = 0; i < keys.length; i++){
+			if (keys[i] != EMPTY){
+				consumer.accept(keys[i], values[i]);
+			}
+		}
+	}
+
+	private int slot(int key){
+		int mask = keys.length - 1;
+		int slot = (key * 0x9E3779B9) >>> 7 & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key){
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow(){
+		int[] oldKeys = keys, oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		for (int i = 0; i < oldKeys.length; i++){
+			if (oldKeys[i] != EMPTY){
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
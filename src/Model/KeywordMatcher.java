@@ -0,0 +1,190 @@
+package Model;
+
+import java.util.ArrayList;
+
+/**
+ * Aho-Corasick automaton finding every occurrence of a set of terms in
+ * one pass over a text, whatever the number of terms. Text is fed one
+ * char at a time with next; transitions on ASCII chars are precomputed
+ * into a table, others follow failure links.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see RatingKernel
+ *
+ */
+public class KeywordMatcher {
+	private static final int ASCII = 128;
+
+	private final int termCount;
+	/**
+	 * Children of each state in the trie of terms, keyed by char
+	 */
+	private final IntIntMap[] children;
+	/**
+	 * Longest proper suffix of each state that is also a state
+	 */
+	private final int[] fail;
+	/**
+	 * Term ending exactly at each state, -1 if none
+	 */
+	private final int[] term;
+	/**
+	 * Nearest proper suffix of each state at which a term ends, -1 if none
+	 */
+	private final int[] output;
+	/**
+	 * Length of the prefix of a term each state stands for
+	 */
+	private final int[] depth;
+	/**
+	 * Next state for each state and ASCII char
+	 */
+	private final int[] asciiNext;
+
+	/**
+	 * Builds the automaton for the given terms. A term is reported by its
+	 * position in terms; of equal terms, only the first is reported.
+	 *
+	 * @param terms Terms to be found, compared char by char
+	 */
+	public KeywordMatcher(String[] terms){
+		termCount = terms.length;
+		ArrayList<IntIntMap> trie = new ArrayList<IntIntMap>();
+		ArrayList<Integer> ends = new ArrayList<Integer>(), depths = new ArrayList<Integer>();
+		trie.add(new IntIntMap());
+		ends.add(-1);
+		depths.add(0);
+		for (int t = 0; t < terms.length; t++){
+			int state = 0;
+			for (int i = 0; i < terms[t].length(); i++){
+				char c = terms[t].charAt(i);
+				int child = trie.get(state).get(c);
+				if (child == 0){
+					child = trie.size();
+					trie.get(state).add(c, child);
+					trie.add(new IntIntMap());
+					ends.add(-1);
+					depths.add(i + 1);
+				}
+				state = child;
+			}
+			if (ends.get(state) == -1){
+				ends.set(state, t);
+			}
+		}
+
+		int states = trie.size();
+		children = trie.toArray(new IntIntMap[0]);
+		term = new int[states];
+		depth = new int[states];
+		for (int s = 0; s < states; s++){
+			term[s] = ends.get(s);
+			depth[s] = depths.get(s);
+		}
+		fail = new int[states];
+		output = new int[states];
+		asciiNext = new int[states * ASCII];
+		output[0] = -1;
+
+		// Breadth first, so a state's failure link is complete before its children's
+		int[] queue = new int[states];
+		int head = 0, tail = 0;
+		queue[tail++] = 0;
+		while (head < tail){
+			int s = queue[head++];
+			for (int c = 0; c < ASCII; c++){
+				int child = children[s].get(c);
+				asciiNext[s * ASCII + c] = child != 0 ? child : (s == 0 ? 0 : asciiNext[fail[s] * ASCII + c]);
+			}
+			int[] keys = new int[children[s].size()], values = new int[keys.length];
+			children[s].copySorted(keys, values, 0);
+			for (int i = 0; i < keys.length; i++){
+				int child = values[i];
+				fail[child] = s == 0 ? 0 : next(fail[s], (char) keys[i]);
+				output[child] = term[fail[child]] >= 0 ? fail[child] : output[fail[child]];
+				queue[tail++] = child;
+			}
+		}
+	}
+
+	/**
+	 * Getter for the number of terms
+	 *
+	 * @return number of terms the automaton was built with
+	 */
+	public int termCount(){
+		return termCount;
+	}
+
+	/**
+	 * State of the automaton before any text is fed to it
+	 *
+	 * @return the start state
+	 */
+	public int start(){
+		return 0;
+	}
+
+	/**
+	 * Feeds one char of text
+	 *
+	 * @param state Current state
+	 * @param c Next char of the text
+	 * @return the state after c
+	 */
+	public int next(int state, char c){
+		if (c < ASCII){
+			return asciiNext[state * ASCII + c];
+		}
+		while (true){
+			int child = children[state].get(c);
+			if (child != 0 || state == 0){
+				return child;
+			}
+			state = fail[state];
+		}
+	}
+
+	/**
+	 * First term ending at the current position of the text
+	 *
+	 * @param state Current state
+	 * @return state at which the term ends, -1 if no term ends here
+	 * @see nextMatch
+	 */
+	public int firstMatch(int state){
+		return term[state] >= 0 ? state : output[state];
+	}
+
+	/**
+	 * Next shorter term ending at the same position of the text as the one
+	 * ending at match
+	 *
+	 * @param match A state returned by firstMatch or nextMatch
+	 * @return state at which the next term ends, -1 if there are no more
+	 */
+	public int nextMatch(int match){
+		return output[match];
+	}
+
+	/**
+	 * The term ending at a match
+	 *
+	 * @param match A state returned by firstMatch or nextMatch
+	 * @return position of the term among those the automaton was built with
+	 */
+	public int termAt(int match){
+		return term[match];
+	}
+
+	/**
+	 * Length of the term ending at a match
+	 *
+	 * @param match A state returned by firstMatch or nextMatch
+	 * @return number of chars in the term
+	 */
+	public int lengthAt(int match){
+		return depth[match];
+	}
+}
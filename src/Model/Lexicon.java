@@ -0,0 +1,206 @@
+package Model;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Weighted keywords and phrases whose presence in a review's text is
+ * correlated with its accuracy. A term with a positive weight is correlated
+ * positively, one with a negative weight negatively; the magnitude is the
+ * weight of the term's attribute when it is found.
+ *
+ * A lexicon file holds one term per line followed by its weight, separated
+ * by white space. A term may be a phrase of several words. Blank lines and
+ * lines starting with # are ignored:
+ * <pre>
+ * # term        weight
+ * best          0.20
+ * waste of money -0.35
+ * </pre>
+ *
+ * All terms are found in one pass over the text by a KeywordMatcher,
+ * ignoring case. Terms of a loaded lexicon only match whole words, and
+ * white space in a phrase matches any run of white space. The built-in
+ * lexicon matches anywhere in the text, as Rater always did.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Rater
+ * @see KeywordMatcher
+ *
+ */
+public class Lexicon {
+	private final String[] terms;
+	/**
+	 * Attribute name of each term
+	 */
+	private final String[] names;
+	private final double[] weights;
+	private final boolean wordBoundaries;
+	private final KeywordMatcher matcher;
+	private final int longestTerm;
+
+	/**
+	 * Constructor for a lexicon of the given terms
+	 *
+	 * @param terms Keywords or phrases, compared ignoring case
+	 * @param weights Signed weight of each term, not 0
+	 * @param wordBoundaries true if terms only match whole words
+	 */
+	public Lexicon(String[] terms, double[] weights, boolean wordBoundaries){
+		if (terms.length != weights.length){
+			throw new IllegalArgumentException("Got " + terms.length + " terms but " + weights.length + " weights");
+		}
+		this.terms = new String[terms.length];
+		this.names = new String[terms.length];
+		this.weights = weights.clone();
+		this.wordBoundaries = wordBoundaries;
+		int longest = 0;
+		for (int i = 0; i < terms.length; i++){
+			if (weights[i] == 0 || Double.isNaN(weights[i])){
+				throw new IllegalArgumentException("Bad weight for " + terms[i] + ": " + weights[i]);
+			}
+			this.terms[i] = wordBoundaries ? normalize(terms[i]) : terms[i].toLowerCase();
+			if (this.terms[i].isEmpty()){
+				throw new IllegalArgumentException("Empty term in lexicon");
+			}
+			this.names[i] = "word:" + this.terms[i];
+			longest = Math.max(longest, this.terms[i].length());
+		}
+		this.longestTerm = longest;
+		this.matcher = new KeywordMatcher(this.terms);
+	}
+
+	/**
+	 * Reads a lexicon file. Malformed lines are reported and skipped; of
+	 * terms listed twice, the last weight is kept.
+	 *
+	 * @param file Lexicon file, UTF-8 encoded
+	 * @return lexicon of the terms in file, matching whole words
+	 * @throws IOException if the file cannot be read
+	 */
+	public static Lexicon load(File file) throws IOException {
+		LinkedHashMap<String, Double> entries = new LinkedHashMap<String, Double>();
+		try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)){
+			String line;
+			int number = 0;
+			while ((line = in.readLine()) != null){
+				number++;
+				String entry = line.trim();
+				if (entry.isEmpty() || entry.startsWith("#")){
+					continue;
+				}
+				int split = lastWhitespace(entry);
+				try {
+					if (split < 0){
+						throw new NumberFormatException("no weight");
+					}
+					double weight = Double.parseDouble(entry.substring(split + 1));
+					if (weight == 0 || Double.isNaN(weight) || Double.isInfinite(weight)){
+						throw new NumberFormatException("weight must be finite and not 0");
+					}
+					entries.put(normalize(entry.substring(0, split)), weight);
+				} catch (NumberFormatException e){
+					System.out.println("Malformed lexicon entry on line " + number + " of " + file + ": " + e.getMessage());
+				}
+			}
+		}
+
+		String[] terms = new String[entries.size()];
+		double[] weights = new double[entries.size()];
+		int i = 0;
+		for (Map.Entry<String, Double> e : entries.entrySet()){
+			terms[i] = e.getKey();
+			weights[i++] = e.getValue();
+		}
+		System.out.println("loaded " + terms.length + " lexicon terms from " + file);
+		return new Lexicon(terms, weights, true);
+	}
+
+	/**
+	 * Lower cases a term and collapses its white space to single spaces
+	 */
+	private static String normalize(String term){
+		return term.trim().replaceAll("\\s+", " ").toLowerCase();
+	}
+
+	private static int lastWhitespace(String entry){
+		for (int i = entry.length() - 1; i >= 0; i--){
+			if (Character.isWhitespace(entry.charAt(i))){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Getter for the number of terms
+	 *
+	 * @return number of terms
+	 */
+	public int size(){
+		return terms.length;
+	}
+
+	/**
+	 * Getter for a term, lower cased
+	 *
+	 * @param i Position of the term
+	 * @return the term
+	 */
+	public String term(int i){
+		return terms[i];
+	}
+
+	/**
+	 * Getter for the name of a term's attribute
+	 *
+	 * @param i Position of the term
+	 * @return "word:" followed by the term
+	 */
+	public String attributeName(int i){
+		return names[i];
+	}
+
+	/**
+	 * Getter for a term's signed weight
+	 *
+	 * @param i Position of the term
+	 * @return positive for terms correlated with accuracy, negative otherwise
+	 */
+	public double weight(int i){
+		return weights[i];
+	}
+
+	/**
+	 * Whether terms only match whole words
+	 *
+	 * @return true if terms only match whole words, false if they match anywhere
+	 */
+	public boolean wordBoundaries(){
+		return wordBoundaries;
+	}
+
+	/**
+	 * Getter for the automaton finding the terms
+	 *
+	 * @return matcher whose term positions are those of this lexicon
+	 */
+	KeywordMatcher matcher(){
+		return matcher;
+	}
+
+	/**
+	 * Getter for the length of the longest term
+	 *
+	 * @return number of chars in the longest term
+	 */
+	int longestTerm(){
+		return longestTerm;
+	}
+}
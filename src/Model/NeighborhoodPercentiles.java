@@ -0,0 +1,96 @@
+package Model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Local percentile of every reviewer among its adjacent reviewers, as used
+ * by Rater: 100 times the share of the reviewer and its neighbors whose
+ * accuracy value is no higher than the reviewer's own. Computed for all nodes in
+ * one parallel pass and kept in an array indexed by node index.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Rater
+ * @see Adjacency
+ *
+ */
+class NeighborhoodPercentiles {
+	/**
+	 * Computes the percentile of every node
+	 *
+	 * @param adjacency Adjacency holding every reviewer's Node
+	 * @return percentile of each node, by node index
+	 */
+	static double[] compute(Adjacency adjacency){
+		double[] accuracy = accuracies(adjacency);
+		double[] percentile = new double[adjacency.size()];
+		IntStream.range(0, percentile.length).parallel().forEach(v -> percentile[v] = percentile(adjacency, accuracy, v));
+		return percentile;
+	}
+
+	/**
+	 * Recomputes, in place, the percentiles that depend on the given nodes:
+	 * those of the nodes themselves and of all their neighbors. Only those
+	 * nodes are visited, so the cost follows the changed nodes and their
+	 * degrees rather than the size of the graph.
+	 *
+	 * @param percentiles Percentiles before the change; grown, with spare capacity, if nodes were added
+	 * @param adjacency Adjacency holding every reviewer's Node
+	 * @param changed Node indexes whose accuracy or edges changed, including every node added since the last refresh
+	 * @return the updated percentiles, by node index; percentiles itself unless it had to grow
+	 */
+	static double[] refresh(double[] percentiles, Adjacency adjacency, int[] changed){
+		if (percentiles.length < adjacency.size()){
+			percentiles = Arrays.copyOf(percentiles, Math.max(adjacency.size(), percentiles.length * 2));
+		}
+		BitSet stale = new BitSet();
+		for (int v : changed){
+			stale.set(v);
+			for (int i = 0; i < adjacency.degree(v); i++){
+				stale.set(adjacency.neighbor(v, i));
+			}
+		}
+		for (int v = stale.nextSetBit(0); v >= 0; v = stale.nextSetBit(v + 1)){
+			percentiles[v] = of(adjacency, v);
+		}
+		return percentiles;
+	}
+
+	/**
+	 * Computes the percentile of one node from the current accuracies
+	 *
+	 * @param adjacency Adjacency holding every reviewer's Node
+	 * @param v index of the node
+	 * @return percentile of v
+	 */
+	static double of(Adjacency adjacency, int v){
+		int degree = adjacency.degree(v), notBetter = 1;
+		double own = adjacency.node(v).value.accuracy;
+		for (int i = 0; i < degree; i++){
+			if (adjacency.node(adjacency.neighbor(v, i)).value.accuracy <= own){
+				notBetter++;
+			}
+		}
+		return 100 * (double) notBetter / (double) (degree + 1);
+	}
+
+	private static double[] accuracies(Adjacency adjacency){
+		double[] accuracy = new double[adjacency.size()];
+		for (int v = 0; v < accuracy.length; v++){
+			accuracy[v] = adjacency.node(v).value.accuracy;
+		}
+		return accuracy;
+	}
+
+	private static double percentile(Adjacency adjacency, double[] accuracy, int v){
+		int degree = adjacency.degree(v), notBetter = 1;
+		for (int i = 0; i < degree; i++){
+			if (accuracy[adjacency.neighbor(v, i)] <= accuracy[v]){
+				notBetter++;
+			}
+		}
+		return 100 * (double) notBetter / (double) (degree + 1);
+	}
+}
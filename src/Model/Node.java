@@ -1,40 +1,40 @@
-﻿package Model;
-import java.util.ArrayList;
+package Model;
+import java.util.Iterator;
 /**
  * Using Reviewer to creates object Node in the graph. 
- * Each node will contain an ArrayList to store its adjacent nodes and another ArrayList to store the edge’s weight. 
+ * Each node has an index in the graph's Adjacency, which stores its adjacent nodes and the edges' weights in primitive arrays. 
  *
  * @author Ian Prins	
  * @see Reviewer
+ * @see Adjacency
  * @version 1.0
  *
  */
 
 public class Node {
 	public Reviewer value;
-	public ArrayList<Node> adjacencies = new ArrayList<Node>();
-	public ArrayList<Integer> adjacentWeights = new ArrayList<Integer>();
-	private int mark = 0;
+	/**
+	 * Position of this node in the graph's Adjacency
+	 */
+	public final int index;
+	private final Adjacency adjacency;
 	
 	/**
-	 * Constructs a Node using the specified reviewer
+	 * Constructs a Node using the specified reviewer and adds it to the adjacency structure
 	 * @param value Using Reviewer as the node of the graph
+	 * @param adjacency Adjacency of the graph the node belongs to
 	 */
-	public Node(Reviewer value){
+	public Node(Reviewer value, Adjacency adjacency){
 		this.value = value;
+		this.adjacency = adjacency;
+		this.index = adjacency.add(this);
 	}
 	/**
 	 * Build the relation between the argument node and this node
-	 * @param n Add Node n to the ArrayList adjacencies if n is not existed in adjacencies before. Otherwise, increments the weight in adjacentWeights between these two nodes.
+	 * @param n Add Node n as an adjacent node if n is not adjacent before. Otherwise, increments the weight of the edge between these two nodes.
 	 */
 	public void incrementAdjacency(Node n){
-		int i = adjacencies.indexOf(n);
-		if (i > 0){
-			adjacentWeights.set(i, adjacentWeights.get(i)+1);
-		} else {
-			adjacencies.add(n);
-			adjacentWeights.add(1);
-		}
+		adjacency.increment(index, n.index);
 	}
 	/**
 	 * 
@@ -42,31 +42,44 @@ public class Node {
 	 * @return the edge's weight between n and this weight
 	 */
 	public int connectionsTo(Node n){
-		for (int i=0; i < adjacencies.size(); i++){
-			if (adjacencies.get(i) == n){
-				return adjacentWeights.get(i);
-			}
-		}
-		return 0;
+		return adjacency.weightBetween(index, n.index);
 	}
 	/**
 	 * 
-	 * @param m helper to Graph class and other algorithms using nodes
+	 * @return the number of nodes adjacent to this node
 	 */
-	public void mark(int m){
-		mark = m;
+	public int degree(){
+		return adjacency.degree(index);
 	}
 	/**
-	 * Getter of private value mark
-	 * @return value of Mark
+	 * 
+	 * @param i position among the adjacent nodes, below degree()
+	 * @return the i'th adjacent node
 	 */
-	public int getMark(){
-		return mark;
+	public Node adjacentNode(int i){
+		return adjacency.node(adjacency.neighbor(index, i));
 	}
 	/**
-	 * set private value mark to default value 0
+	 * 
+	 * @param i position among the adjacent nodes, below degree()
+	 * @return the weight of the edge to the i'th adjacent node
 	 */
-	public void clearMark(){
-		mark = 0;
+	public int adjacentWeight(int i){
+		return adjacency.weight(index, i);
+	}
+	/**
+	 * 
+	 * @return all adjacent nodes, for use in a for-each loop
+	 */
+	public Iterable<Node> adjacencies(){
+		return () -> new Iterator<Node>(){
+			private int i = 0;
+			public boolean hasNext(){
+				return i < degree();
+			}
+			public Node next(){
+				return adjacentNode(i++);
+			}
+		};
 	}
 }
\ No newline at end of file
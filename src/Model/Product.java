@@ -1,6 +1,8 @@
 package Model;
+
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Comparator;
 
 /**
  * ADT representing a product listing in an online catalog.
@@ -13,9 +15,19 @@ import java.util.Collection;
  */
 public class Product{
 	final String productId;
+	/**
+	 * Position of the product among all products of its graph, assigned by the graph
+	 */
+	int ordinal = -1;
 	//Product tracks the average score given to itself
 	private int scoreSum = 0, numReviews = 0;
 	private double scoreAverage;
+	//Product keeps the ordinals of its own reviews in the order they were added, whether that is also their order by time, and the time of the first one
+	private final ReviewList reviews = new ReviewList();
+	private boolean reviewsSorted = true;
+	//Reviews added that are in no ReviewStore, such as ones built by hand; null until there is one
+	private ArrayList<Review> unstoredReviews = null;
+	private int firstReviewTime = Integer.MAX_VALUE;
 	
 	/**
 	 * Constructor to build product with given ID
@@ -26,15 +38,143 @@ public class Product{
 		this.productId = productId;
 	}
 	
+	/**
+	 * Constructor to restore a product with known score aggregates.
+	 * Its reviews are added afterwards with attachReview.
+	 * 
+	 * @param productId Unique string designating a product
+	 * @param scoreSum Sum of the scores of all its reviews
+	 * @param numReviews Number of reviews of the product
+	 */
+	Product(String productId, int scoreSum, int numReviews){
+		this.productId = productId;
+		this.scoreSum = scoreSum;
+		this.numReviews = numReviews;
+		this.scoreAverage = numReviews == 0 ? 0 : (1.0*scoreSum) / numReviews;
+	}
+	
 	/**
 	 * Method to update product's average score based on a review
 	 * 
 	 * @param review New review that product's average score needs to be updated to reflect
 	 */
 	public void addReview(Review review){
+		if (review.store != null){
+			addReview(review.store, review.ordinal);
+			return;
+		}
 		scoreSum += review.score;
 		numReviews++;
 		scoreAverage = (1.0*scoreSum) / numReviews;
+		firstReviewTime = Math.min(firstReviewTime, review.time);
+		synchronized (reviews){
+			if (unstoredReviews == null){
+				unstoredReviews = new ArrayList<Review>();
+			}
+			unstoredReviews.add(review);
+		}
+	}
+	
+	/**
+	 * Method to update product's average score based on a stored review
+	 * 
+	 * @param store Store holding the review
+	 * @param ordinal Position of the review in store
+	 */
+	void addReview(ReviewStore store, int ordinal){
+		scoreSum += store.score(ordinal);
+		numReviews++;
+		scoreAverage = (1.0*scoreSum) / numReviews;
+		attachReview(store, ordinal);
+	}
+	
+	/**
+	 * Replaces the score aggregates with ones recomputed from the product's
+	 * stored reviews, counting its reviews in no ReviewStore as well
+	 * 
+	 * @param scoreSum Sum of the scores of all its stored reviews
+	 * @param numReviews Number of stored reviews of the product
+	 */
+	void setAggregates(int scoreSum, int numReviews){
+		synchronized (reviews){
+			if (unstoredReviews != null){
+				for (Review review : unstoredReviews){
+					scoreSum += review.score;
+				}
+				numReviews += unstoredReviews.size();
+			}
+		}
+		this.scoreSum = scoreSum;
+		this.numReviews = numReviews;
+		this.scoreAverage = numReviews == 0 ? 0 : (1.0*scoreSum) / numReviews;
+	}
+	
+	/**
+	 * Adds a review to the product's list of reviews without updating its score aggregates
+	 * 
+	 * @param store Store holding the review
+	 * @param ordinal Position in store of a review of this product
+	 */
+	void attachReview(ReviewStore store, int ordinal){
+		int time = store.time(ordinal);
+		firstReviewTime = Math.min(firstReviewTime, time);
+		synchronized (reviews){
+			if (reviews.size() > 0 && time < reviews.time(reviews.size()-1)){
+				reviewsSorted = false;
+			}
+			reviews.add(store, ordinal);
+		}
+	}
+	
+	/**
+	 * Getter for all reviews of this product, ordered by time
+	 * 
+	 * @return array of this product's reviews, earliest first
+	 */
+	public Review[] getReviews(){
+		synchronized (reviews){
+			Review[] stored = reviewsSorted ? reviews.toArray() : reviews.toArrayByTime();
+			if (unstoredReviews == null){
+				return stored;
+			}
+			Review[] all = Arrays.copyOf(stored, stored.length + unstoredReviews.size());
+			for (int i = 0; i < unstoredReviews.size(); i++){
+				all[stored.length + i] = unstoredReviews.get(i);
+			}
+			Arrays.sort(all, Comparator.comparingInt((Review r) -> r.time));
+			return all;
+		}
+	}
+	
+	/**
+	 * Getter for the ordinals of the reviews added to this product last,
+	 * in the order they were added rather than by time
+	 * 
+	 * @param n Number of reviews wanted
+	 * @return ordinals in the store of the last n reviews added, or of all of them if there are fewer
+	 */
+	int[] lastReviewOrdinals(int n){
+		synchronized (reviews){
+			return reviews.lastAdded(n);
+		}
+	}
+	
+	/**
+	 * Getter for the time the product was first reviewed
+	 * 
+	 * @return Unix time of the earliest review; Integer.MAX_VALUE if there are none
+	 */
+	public int getFirstReviewTime(){
+		return firstReviewTime;
+	}
+	
+	/**
+	 * Getter for the ID of the product
+	 * 
+	 * @return Unique string designating this product
+	 */
+	public String getProductId(){
+		return productId;
 	}
 	
 	/**
@@ -64,4 +204,13 @@ public class Product{
 	public int getNumReviews(){
 		return numReviews;
 	}
+	
+	/**
+	 * Getter for private attribute: the sum of the scores given to Product
+	 * 
+	 * @return Value of private attribute
+	 */
+	public int getScoreSum(){
+		return scoreSum;
+	}
 }
@@ -0,0 +1,370 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reviewers of a Graph ranked by accuracy, lowest (best) first. Reviewers
+ * with equal accuracy are ordered by node index, so every reviewer has a
+ * distinct position and none are lost to ties. The ranking is kept in
+ * blocks of at most BLOCK_SIZE reviewers, each sorted, so that when
+ * accuracies change the changed reviewers are moved in place: the cost of
+ * an update grows with the number of changed reviewers rather than with
+ * the number of all reviewers. Not thread safe; the graph updates it under
+ * its write lock and queries it under its read lock.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ * @see Reviewer
+ *
+ */
+public class RankIndex {
+	/**
+	 * Size below which the sort runs on one thread
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 4096;
+	/**
+	 * Most reviewers in one block; a full block is split in two, and a
+	 * ranking is built with blocks half full
+	 */
+	private static final int BLOCK_SIZE = 512;
+	/**
+	 * An update changing more than one in REBUILD_SHARE of the reviewers
+	 * ranks all of them again instead, which is then cheaper
+	 */
+	private static final int REBUILD_SHARE = 8;
+
+	private final Adjacency adjacency;
+	/**
+	 * Blocks in rank order
+	 */
+	private final ArrayList<Block> blocks = new ArrayList<Block>();
+	/**
+	 * Rank of the first reviewer of each block, followed by the number of reviewers
+	 */
+	private int[] blockStart;
+	/**
+	 * Block holding each node and the accuracy it is ranked by, by node index
+	 */
+	private Block[] blockOf;
+	private double[] ranked;
+
+	/**
+	 * Reviewers of consecutive ranks, sorted by accuracy, then node index
+	 */
+	private static class Block {
+		int[] nodes = new int[BLOCK_SIZE];
+		double[] accuracy = new double[BLOCK_SIZE];
+		int size = 0;
+	}
+
+	private RankIndex(Adjacency adjacency){
+		this.adjacency = adjacency;
+	}
+
+	/**
+	 * Ranks every reviewer in the adjacency, sorting in parallel
+	 *
+	 * @param adjacency Adjacency holding every reviewer's Node
+	 * @return the ranking
+	 */
+	public static RankIndex build(Adjacency adjacency){
+		RankIndex index = new RankIndex(adjacency);
+		index.rebuild();
+		return index;
+	}
+
+	/**
+	 * Sorts every reviewer again and fills the blocks from the result
+	 */
+	private void rebuild(){
+		int n = adjacency.size();
+		int[] order = new int[n];
+		for (int v = 0; v < n; v++){
+			order[v] = v;
+		}
+		double[] accuracy = new double[n];
+		for (int v = 0; v < n; v++){
+			accuracy[v] = accuracy(v);
+		}
+		ForkJoinPool.commonPool().invoke(new SortTask(order, new int[n], accuracy, 0, n));
+		blocks.clear();
+		blockOf = new Block[n];
+		ranked = accuracy;
+		Block block = null;
+		for (int v : order){
+			if (block == null || block.size == BLOCK_SIZE / 2){
+				block = new Block();
+				blocks.add(block);
+			}
+			block.nodes[block.size] = v;
+			block.accuracy[block.size++] = accuracy[v];
+			blockOf[v] = block;
+		}
+		reindex();
+	}
+
+	/**
+	 * Moves the reviewers whose accuracy changed, and adds the new ones, to
+	 * their place in the ranking. The other reviewers keep their order.
+	 *
+	 * @param changed Node indexes whose accuracy changed, including every node added since the last update
+	 */
+	public void update(int[] changed){
+		int n = adjacency.size();
+		if ((long) changed.length * REBUILD_SHARE > n){
+			rebuild();
+			return;
+		}
+		if (blockOf.length < n){
+			int capacity = Math.max(n, blockOf.length * 2);
+			blockOf = Arrays.copyOf(blockOf, capacity);
+			ranked = Arrays.copyOf(ranked, capacity);
+		}
+		for (int v : changed){
+			if (blockOf[v] != null){
+				remove(v);
+			}
+			insert(v, accuracy(v));
+		}
+		reindex();
+	}
+
+	private void remove(int v){
+		Block block = blockOf[v];
+		int i = 0;
+		while (block.nodes[i] != v){
+			i++;
+		}
+		System.arraycopy(block.nodes, i + 1, block.nodes, i, block.size - i - 1);
+		System.arraycopy(block.accuracy, i + 1, block.accuracy, i, block.size - i - 1);
+		block.size--;
+		blockOf[v] = null;
+		if (block.size == 0){
+			blocks.remove(block);
+		}
+	}
+
+	private void insert(int v, double accuracy){
+		if (blocks.isEmpty()){
+			blocks.add(new Block());
+		}
+		// First block whose last reviewer ranks after v, or the last block
+		int low = 0, high = blocks.size() - 1;
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			Block b = blocks.get(middle);
+			if (compare(b.accuracy[b.size - 1], b.nodes[b.size - 1], accuracy, v) < 0){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		Block block = blocks.get(low);
+		if (block.size == BLOCK_SIZE){
+			Block upper = new Block();
+			upper.size = BLOCK_SIZE / 2;
+			System.arraycopy(block.nodes, BLOCK_SIZE / 2, upper.nodes, 0, upper.size);
+			System.arraycopy(block.accuracy, BLOCK_SIZE / 2, upper.accuracy, 0, upper.size);
+			block.size = BLOCK_SIZE / 2;
+			for (int i = 0; i < upper.size; i++){
+				blockOf[upper.nodes[i]] = upper;
+			}
+			blocks.add(low + 1, upper);
+			if (compare(block.accuracy[block.size - 1], block.nodes[block.size - 1], accuracy, v) < 0){
+				block = upper;
+			}
+		}
+		int i = block.size;
+		while (i > 0 && compare(block.accuracy[i - 1], block.nodes[i - 1], accuracy, v) > 0){
+			i--;
+		}
+		System.arraycopy(block.nodes, i, block.nodes, i + 1, block.size - i);
+		System.arraycopy(block.accuracy, i, block.accuracy, i + 1, block.size - i);
+		block.nodes[i] = v;
+		block.accuracy[i] = accuracy;
+		block.size++;
+		blockOf[v] = block;
+		ranked[v] = accuracy;
+	}
+
+	/**
+	 * Recomputes the first rank of every block
+	 */
+	private void reindex(){
+		blockStart = new int[blocks.size() + 1];
+		for (int b = 0; b < blocks.size(); b++){
+			blockStart[b + 1] = blockStart[b] + blocks.get(b).size;
+		}
+	}
+
+	/**
+	 * Getter for the number of ranked reviewers
+	 *
+	 * @return number of reviewers
+	 */
+	public int size(){
+		return blockStart[blocks.size()];
+	}
+
+	/**
+	 * The reviewers from rank "from" up to, but not including, rank "to"
+	 *
+	 * @param from first rank, 0 being the most accurate reviewer
+	 * @param to rank after the last one
+	 * @return Reviewers in rank order
+	 */
+	public Reviewer[] range(int from, int to){
+		Reviewer[] result = new Reviewer[Math.max(0, to - from)];
+		if (result.length == 0){
+			return result;
+		}
+		// Last block starting at or before from
+		int low = 0, high = blocks.size() - 1;
+		while (low < high){
+			int middle = (low + high + 1) >>> 1;
+			if (blockStart[middle] <= from){
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		int k = 0;
+		for (int b = low; k < result.length; b++){
+			Block block = blocks.get(b);
+			for (int i = Math.max(0, from - blockStart[b]); i < block.size && k < result.length; i++){
+				result[k++] = adjacency.node(block.nodes[i]).value;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Number of reviewers strictly more accurate than the given node, so that
+	 * reviewers with equal accuracy share a rank
+	 *
+	 * @param v index of the node
+	 * @return rank of v, 0 being the most accurate
+	 */
+	public int rankOf(int v){
+		return bound(ranked[v], false);
+	}
+
+	/**
+	 * Reviewers whose accuracy is between min and max, both included
+	 *
+	 * @param min lowest accuracy
+	 * @param max highest accuracy
+	 * @return Reviewers in rank order
+	 */
+	public Reviewer[] inRange(double min, double max){
+		return range(bound(min, false), bound(max, true));
+	}
+
+	/**
+	 * First rank whose accuracy is not below value, or, if above is set, is above value
+	 */
+	private int bound(double value, boolean above){
+		int low = 0, high = blocks.size();
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			Block b = blocks.get(middle);
+			if (before(b.accuracy[b.size - 1], value, above)){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		if (low == blocks.size()){
+			return size();
+		}
+		Block block = blocks.get(low);
+		int first = 0, last = block.size;
+		while (first < last){
+			int middle = (first + last) >>> 1;
+			if (before(block.accuracy[middle], value, above)){
+				first = middle + 1;
+			} else {
+				last = middle;
+			}
+		}
+		return blockStart[low] + first;
+	}
+
+	private static boolean before(double accuracy, double value, boolean above){
+		return above ? accuracy <= value : accuracy < value;
+	}
+
+	private double accuracy(int v){
+		return adjacency.node(v).value.accuracy;
+	}
+
+	private static int compare(double accuracyA, int a, double accuracyB, int b){
+		int c = Double.compare(accuracyA, accuracyB);
+		return c != 0 ? c : Integer.compare(a, b);
+	}
+
+	/**
+	 * Merge sort of node indexes by accuracy, then index
+	 */
+	private static void sort(int[] order, int[] scratch, double[] accuracy, int from, int to){
+		if (to - from < 2){
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sort(order, scratch, accuracy, from, middle);
+		sort(order, scratch, accuracy, middle, to);
+		merge(order, scratch, accuracy, from, middle, to);
+	}
+
+	private static void merge(int[] order, int[] scratch, double[] accuracy, int from, int middle, int to){
+		System.arraycopy(order, from, scratch, from, to - from);
+		int i = from, j = middle, k = from;
+		while (i < middle && j < to){
+			if (compare(accuracy[scratch[j]], scratch[j], accuracy[scratch[i]], scratch[i]) < 0){
+				order[k++] = scratch[j++];
+			} else {
+				order[k++] = scratch[i++];
+			}
+		}
+		while (i < middle){
+			order[k++] = scratch[i++];
+		}
+		while (j < to){
+			order[k++] = scratch[j++];
+		}
+	}
+
+	/**
+	 * Sorts the two halves of a range in parallel, then merges them
+	 */
+	private static class SortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int[] order, scratch;
+		private final double[] accuracy;
+		private final int from, to;
+
+		SortTask(int[] order, int[] scratch, double[] accuracy, int from, int to){
+			this.order = order;
+			this.scratch = scratch;
+			this.accuracy = accuracy;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute(){
+			if (to - from < SEQUENTIAL_THRESHOLD){
+				sort(order, scratch, accuracy, from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new SortTask(order, scratch, accuracy, from, middle),
+					new SortTask(order, scratch, accuracy, middle, to));
+			merge(order, scratch, accuracy, from, middle, to);
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package Model;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.PriorityQueue;
+import java.util.LinkedHashMap;
 
 /**
  * Class providing methods for evaluating the accuracy of a review based on heuristics
@@ -29,6 +28,16 @@ public class Rater {
 	 *  Mapping of words to positive or negative correlations.
 	 */
 	private static final HashMap<String, Double> IDEAL_WORDS;
+	
+	/**
+	 * Built-in lexicon of the keywords of IDEAL_WORDS, matched anywhere in the text.
+	 */
+	public static final Lexicon DEFAULT_LEXICON;
+	
+	/**
+	 * Lexicon used by Raters not given one.
+	 */
+	private static volatile Lexicon lexicon;
 		
 	/**
 	 * Ideal number of words in the review summary.
@@ -116,9 +125,24 @@ public class Rater {
         private static final double WEIGHT_ACCURACY = 1.00d;
 	
 	/**
-	 * Maps computed attribute values to their respective weights.
+	 * Most attributes a review can have besides its keywords.
+	 */
+	private static final int MAX_OTHER_ATTRIBUTES = 8;
+	
+	/**
+	 * Scores of the computed attributes, and their respective weights.
+	 */
+	private double[] givenScores, givenWeights;
+	
+	/**
+	 * Names of the computed attributes, in the same order as givenScores.
+	 */
+	private String[] attributeNames;
+	
+	/**
+	 * Number of attributes computed.
 	 */
-	private ArrayList<Double[]> givenValues;
+	private int attributeCount = 0;
 	
 	/**
 	 * Total weights of attributes considered.
@@ -144,7 +168,31 @@ public class Rater {
 		
 		// Words negatively correlated with accuracy
 		IDEAL_WORDS.put("worst", Double.NEGATIVE_INFINITY);
+		
+		// Keywords are scored in the iteration order of IDEAL_WORDS
+		String[] words = IDEAL_WORDS.keySet().toArray(new String[0]);
+		double[] weights = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			weights[i] = IDEAL_WORDS.get(words[i]) > 0 ? WEIGHT_WORDS : -WEIGHT_WORDS;
+		}
+		DEFAULT_LEXICON = new Lexicon(words, weights, false);
+		lexicon = DEFAULT_LEXICON;
 	}
+	
+	/**
+	 * Sets the lexicon used by Raters not given one.
+	 * 
+	 * @param keywords Lexicon of keywords, such as one loaded from a file
+	 * @see Lexicon
+	 */
+	public static void setLexicon(Lexicon keywords) { lexicon = keywords; }
+	
+	/**
+	 * Returns the lexicon used by Raters not given one.
+	 * 
+	 * @return Returns the lexicon used by Raters not given one.
+	 */
+	public static Lexicon getLexicon() { return lexicon; }
 
 	/**
 	 * Initializes a Rater object with the specified parameters.
@@ -166,76 +214,100 @@ public class Rater {
 	 * @param review Review information
 	 */
 	public Rater(Graph graph, Review review) {
+		this(graph, review, lexicon);
+	}
+	
+	/**
+	 * Initializes a Rater object with the given reviewer graph, review information and keywords.
+	 * A lexicon matching anywhere in the text has an attribute for every keyword, while one 
+	 * matching whole words only has attributes for the keywords found.
+	 * 
+	 * @param graph Graph containing relationships between reviewers
+	 * @param review Review information
+	 * @param keywords Lexicon of keywords to search the review body for
+	 */
+	public Rater(Graph graph, Review review, Lexicon keywords) {
 		if (review == null) return;
 		
-		givenValues = new ArrayList<>();
+		// Count words, capitals and keywords of the body in one pass, unless the graph counted them already
+		RatingKernel kernel = RatingKernel.measure(graph, review, keywords);
+		int keywordAttributes = !review.hasText() ? 0 : keywords.wordBoundaries() ? kernel.foundCount() : keywords.size();
+		givenScores = new double[MAX_OTHER_ATTRIBUTES + keywordAttributes];
+		givenWeights = new double[givenScores.length];
+		attributeNames = new String[givenScores.length];
 		
 		// Apply review summary heuristics (if applicable)
-		if (review.summary != null) {
-			addAttribute(review.summaryWordCount(), IDEAL_SUMMARY, WEIGHT_SUMMARY);
+		if (review.hasSummary()) {
+			addAttribute("summary", kernel.summaryWords, IDEAL_SUMMARY, WEIGHT_SUMMARY);
 		}
 		
 		// Apply review body heuristics (if applicable)
-		if (review.text != null) {
-			addAttribute(review.textWordCount(), IDEAL_TEXT, WEIGHT_TEXT);
-			addAttribute(calculateCapitalWords(review.text), IDEAL_CAPITAL, WEIGHT_CAPITAL);
+		if (review.hasText()) {
+			addAttribute("text", kernel.words, IDEAL_TEXT, WEIGHT_TEXT);
+			addAttribute("capital", kernel.capitals, IDEAL_CAPITAL, WEIGHT_CAPITAL);
 			
 			// Keyword heuristic search
-			IDEAL_WORDS.forEach((word, weight) -> addAttribute(review.text.toLowerCase().contains(word) ? 1 : 0, 
-					weight, review.text.toLowerCase().contains(word) ? WEIGHT_WORDS : 0));
+			if (keywords.wordBoundaries()) {
+				for (int i = 0; i < kernel.foundCount(); i++) addKeyword(keywords, kernel.found(i), true);
+			} else {
+				for (int i = 0; i < keywords.size(); i++) addKeyword(keywords, i, kernel.matched(i));
+			}
 		}
 		
 		// Apply review helpfulness heuristics (if applicable)
 		if (review.helpfulness != NO_VALUE_DOUBLE) {
-			addAttribute(review.helpfulness, IDEAL_HELP, WEIGHT_HELP);
+			addAttribute("helpfulness", review.helpfulness, IDEAL_HELP, WEIGHT_HELP);
 		}
 		
 		// Apply reviewer heuristics (if applicable)
 		if (graph != null && review.userId != null) {
 			Reviewer reviewer = graph.searchForUserID(review.userId);
 			if (reviewer != null) {
-				addAttribute(reviewer.accuracy, IDEAL_ACCURACY, WEIGHT_ACCURACY);
-				addAttribute(calculateConnectionScore(graph, reviewer), IDEAL_CONNECTIONS, WEIGHT_CONNECTIONS);
-				addAttribute(graph.timeIntoProductLife(review), IDEAL_TIME_PRODUCT, WEIGHT_TIME_PRODUCT);
-				addAttribute(graph.timeIntoReviewerLife(review), IDEAL_TIME_LIFE, WEIGHT_TIME_LIFE);
+				addAttribute("accuracy", reviewer.accuracy, IDEAL_ACCURACY, WEIGHT_ACCURACY);
+				addAttribute("connections", calculateConnectionScore(graph, reviewer), IDEAL_CONNECTIONS, WEIGHT_CONNECTIONS);
+				addAttribute("productTime", graph.timeIntoProductLife(review), IDEAL_TIME_PRODUCT, WEIGHT_TIME_PRODUCT);
+				addAttribute("reviewerTime", graph.timeIntoReviewerLife(review), IDEAL_TIME_LIFE, WEIGHT_TIME_LIFE);
 			}
 		}
 
 		calculateRating(totalWeight);
 	}
 	
+	/**
+	 * Adds the attribute of a keyword, weighted only if it was found.
+	 * 
+	 * @param keywords Lexicon containing the keyword
+	 * @param term Position of the keyword in the lexicon
+	 * @param found Whether the review body contains the keyword
+	 */
+	private void addKeyword(Lexicon keywords, int term, boolean found) {
+		double weight = keywords.weight(term);
+		addAttribute(keywords.attributeName(term), found ? 1 : 0, weight > 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY,
+				found ? Math.abs(weight) : 0);
+	}
+	
 	/**
 	 * Computes the value of an attribute and adds it to the considered list of attributes.
 	 * 
+	 * @param name Name of proposed characteristic
 	 * @param value Value of proposed characteristic
 	 * @param idealValue Ideal value of proposed characteristic
 	 * @param valueWeight Weight of the proposed characteristic
 	 */
-	private void addAttribute(double value, double idealValue, double valueWeight) {
+	private void addAttribute(String name, double value, double idealValue, double valueWeight) {
+		attributeNames[attributeCount] = name;
+		
 		// Existence implies negative correlation to accuracy
-		if (idealValue == Double.NEGATIVE_INFINITY) 		givenValues.add(new Double[] {value > 0 ? 0d : 1d, valueWeight});
+		if (idealValue == Double.NEGATIVE_INFINITY) 		givenScores[attributeCount] = value > 0 ? 0d : 1d;
 		// Existence implies positive correlation to accuracy
-		else if (idealValue == Double.POSITIVE_INFINITY)	givenValues.add(new Double[] {value > 0 ? 1d : 0d, valueWeight});
+		else if (idealValue == Double.POSITIVE_INFINITY)	givenScores[attributeCount] = value > 0 ? 1d : 0d;
 		// Quantity implies type and degree of correlation to accuracy
-		else 												givenValues.add(new Double[] {Math.max(0, 1d - (double) Math.abs(value - idealValue) / idealValue), valueWeight});
+		else 												givenScores[attributeCount] = Math.max(0, 1d - (double) Math.abs(value - idealValue) / idealValue);
 
+		givenWeights[attributeCount++] = valueWeight;
 		totalWeight += valueWeight;
 	}
 	
-	/**
-	 * Returns the number of words in the given text consisting only of CAPITAL WORDS.
-	 * 
-	 * @param text Text to be searched for CAPITAL WORDS.
-	 * @return Returns the number of words in the given text consisting only of CAPITAL WORDS.
-	 */
-	private int calculateCapitalWords(String text) {
-		int capitalWords = 0;
-		
-		// Count number of capitalized words
-		for (String word : text.split(" ")) if (word.equals(word.toUpperCase())) capitalWords ++;
-		
-		return capitalWords;
-	}
         
         /**
 	 * Computes the review rating as a function of the calculated attributes.
@@ -245,7 +317,7 @@ public class Rater {
 	private void calculateRating(double totalWeight) {
 		rating = 0;
 		
-		for (Double[] scoreWeight : givenValues) rating += scoreWeight[0]*(scoreWeight[1]/totalWeight);
+		for (int i = 0; i < attributeCount; i++) rating += givenScores[i]*(givenWeights[i]/totalWeight);
 	}
 	
 	/**
@@ -256,22 +328,8 @@ public class Rater {
 	 * @return Returns the local percentile of a reviewer in the context of the reviewer's connections.
 	 */
 	private double calculateConnectionScore(Graph graph, Reviewer reviewer) {
-		Node reviewerNode = graph.getNode(reviewer);
-		
-		ArrayList<Node> adjacentNodes = reviewerNode.adjacencies;
-		
-		// Priority queue to rank adjacent reviewers by average accuracy
-		PriorityQueue<Node> percentileQueue = new PriorityQueue<>(adjacentNodes.size(), 
-				(nodeA, nodeB) -> -((Double) (nodeA.value.accuracy)).compareTo(nodeB.value.accuracy));
-		
-		// Add reviewer under investigation and all adjacent reviewers to queue
-		percentileQueue.add(reviewerNode);
-		adjacentNodes.forEach(node -> percentileQueue.add(node));
-		
-		// Determine number of adjacent reviewers with better accuracy
-		while (percentileQueue.peek().value != reviewer) percentileQueue.remove();
-		
-		return 100 * (double) (percentileQueue.size()) / (double) (adjacentNodes.size() + 1);
+		// Precomputed by the graph for every reviewer
+		return graph.connectionPercentile(graph.getNode(reviewer));
 	}
         
         /**
@@ -281,6 +339,22 @@ public class Rater {
 	 */
 	public double getRating() { return rating; }
         
+        /**
+	 * Returns the share of the rating contributed by each attribute considered,
+	 * in the order the attributes were computed. The shares add up to the rating.
+	 * 
+	 * @return Returns the contribution of each attribute, mapped to by attribute name.
+	 */
+	public LinkedHashMap<String, Double> getContributions() {
+		LinkedHashMap<String, Double> contributions = new LinkedHashMap<>();
+		
+		for (int i = 0; i < attributeCount; i++) {
+			contributions.put(attributeNames[i], givenScores[i]*(givenWeights[i]/totalWeight));
+		}
+		
+		return contributions;
+	}
+        
         /**
 	 * Returns a String representation of the review rating.
 	 * 
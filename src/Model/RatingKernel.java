@@ -0,0 +1,432 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counts the words, CAPITAL WORDS and keywords of a review's text in a
+ * single pass over its chars, without allocating. Gives the same counts as
+ * matching \w+, splitting on " " and comparing each word to its upper case,
+ * and searching the lower cased text for each term of a Lexicon.
+ *
+ * For lexicons matching whole words, the lower cased text is fed to the
+ * matcher with white space runs collapsed to a space. A match is kept if
+ * it does not continue a word on either side; the chars fed last are
+ * remembered in a ring long enough for the longest term.
+ *
+ * Each thread scans with its own kernel, kept between reviews. Reviews
+ * stored in a Graph are not scanned again: their counts are loaded from
+ * the graph's TextStats.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Rater
+ * @see Lexicon
+ * @see KeywordMatcher
+ * @see TextStats
+ *
+ */
+final class RatingKernel {
+	private static final ThreadLocal<RatingKernel> SCRATCH = ThreadLocal.withInitial(RatingKernel::new);
+
+	/**
+	 * Chars matched by \w
+	 */
+	private static final boolean[] WORD = new boolean[128];
+	static {
+		for (char c = 0; c < 128; c++){
+			WORD[c] = c == '_' || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+		}
+	}
+
+	private static volatile CaseTable caseTable;
+
+	/**
+	 * Number of words in the summary last measured, -1 if it had none
+	 */
+	int summaryWords;
+	/**
+	 * Number of chars in the text last measured
+	 */
+	int textLength;
+	/**
+	 * Number of words in the text last scanned
+	 */
+	int words;
+	/**
+	 * Number of words in the text last scanned equal to their upper case
+	 */
+	int capitals;
+	/**
+	 * Whether each term occurs in the text last scanned
+	 */
+	private boolean[] matched = new boolean[0];
+	/**
+	 * Terms found in the text last scanned, in lexicon order after the scan
+	 */
+	private int[] found = new int[16];
+	private int foundCount;
+
+	private KeywordMatcher keywords;
+	private boolean wordBoundaries;
+	/**
+	 * Whether each of the last chars fed continues a word, by position modulo its length
+	 */
+	private boolean[] wordRing = new boolean[16];
+	private int fed;
+	private boolean lastSpace;
+	/**
+	 * Terms matched at the last char fed, kept if the next char does not continue a word
+	 */
+	private int[] pending = new int[16];
+	private int pendingCount;
+
+	private RatingKernel(){
+	}
+
+	/**
+	 * Scans a text with this thread's kernel
+	 *
+	 * @param text Text of a review
+	 * @param lexicon Terms to search for
+	 * @return the kernel, holding the counts until this thread's next scan
+	 */
+	static RatingKernel scan(String text, Lexicon lexicon){
+		RatingKernel kernel = SCRATCH.get();
+		kernel.start(lexicon);
+		kernel.run(text, CaseTable.current());
+		kernel.finish();
+		return kernel;
+	}
+
+	/**
+	 * Measures the summary and text of a review with this thread's kernel,
+	 * loading the counts of reviews stored in graph instead of scanning them
+	 *
+	 * @param graph Graph the review may be stored in; may be null
+	 * @param review Review with a summary, a text or both
+	 * @param lexicon Terms to search the text for
+	 * @return the kernel, holding the counts until this thread's next scan
+	 */
+	static RatingKernel measure(Graph graph, Review review, Lexicon lexicon){
+		RatingKernel kernel = SCRATCH.get();
+		if (graph != null && graph.loadTextStats(review, lexicon, kernel)){
+			return kernel;
+		}
+		kernel.start(lexicon);
+		String text = review.getText(), summary = review.getSummary();
+		if (text != null){
+			kernel.run(text, CaseTable.current());
+			kernel.finish();
+			kernel.textLength = text.length();
+		} else {
+			kernel.words = kernel.capitals = kernel.textLength = -1;
+		}
+		kernel.summaryWords = summary == null ? -1 : countWords(summary);
+		return kernel;
+	}
+
+	/**
+	 * Sets the counts to ones measured earlier
+	 *
+	 * @param keywords Terms found, in lexicon order, from keywords[from] to keywords[to - 1]
+	 */
+	void load(int summaryWords, int words, int capitals, int textLength, Lexicon lexicon, int[] keywords, int from, int to){
+		start(lexicon);
+		this.summaryWords = summaryWords;
+		this.words = words;
+		this.capitals = capitals;
+		this.textLength = textLength;
+		for (int i = from; i < to; i++){
+			record(keywords[i]);
+		}
+	}
+
+	/**
+	 * Whether a term occurs in the text last scanned, ignoring case
+	 *
+	 * @param term Position of the term in the lexicon
+	 * @return true if it occurs
+	 */
+	boolean matched(int term){
+		return matched[term];
+	}
+
+	/**
+	 * Getter for the number of terms found in the text last scanned
+	 *
+	 * @return number of distinct terms found
+	 */
+	int foundCount(){
+		return foundCount;
+	}
+
+	/**
+	 * Getter for a term found in the text last scanned
+	 *
+	 * @param i Index between 0 and foundCount, in lexicon order
+	 * @return position of the term in the lexicon
+	 */
+	int found(int i){
+		return found[i];
+	}
+
+	/**
+	 * Counts the words in a text, as runs of chars matched by \w
+	 *
+	 * @param text Text in question
+	 * @return Number of words in text
+	 */
+	static int countWords(String text){
+		int words = 0;
+		boolean inWord = false;
+		for (int i = 0, n = text.length(); i < n; i++){
+			char c = text.charAt(i);
+			boolean word = c < 128 && WORD[c];
+			if (word && !inWord){
+				words++;
+			}
+			inWord = word;
+		}
+		return words;
+	}
+
+	private void start(Lexicon lexicon){
+		keywords = lexicon.matcher();
+		wordBoundaries = lexicon.wordBoundaries();
+		if (matched.length < lexicon.size()){
+			matched = new boolean[lexicon.size()];
+		} else {
+			Arrays.fill(matched, false);
+		}
+		if (wordRing.length <= lexicon.longestTerm()){
+			wordRing = new boolean[Integer.highestOneBit(lexicon.longestTerm()) * 2];
+		}
+		foundCount = 0;
+		fed = 0;
+		lastSpace = true;
+		pendingCount = 0;
+	}
+
+	private void finish(){
+		if (pendingCount > 0){
+			commitPending();
+		}
+		Arrays.sort(found, 0, foundCount);
+	}
+
+	private void run(String text, CaseTable table){
+		if (table == null){
+			runExact(text);
+			return;
+		}
+
+		words = 0;
+		capitals = 0;
+		boolean inWord = false, sawSpace = false, capital = true;
+		// Empty words are only counted once a word follows them, as split drops trailing ones
+		int wordLength = 0, emptyWords = 0;
+		int state = keywords.start();
+		for (int i = 0, n = text.length(); i < n; i++){
+			char c = text.charAt(i);
+
+			boolean word = c < 128 && WORD[c];
+			if (word && !inWord){
+				words++;
+			}
+			inWord = word;
+
+			boolean pair = Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1));
+			boolean pairEnd = Character.isLowSurrogate(c) && i > 0 && Character.isHighSurrogate(text.charAt(i - 1));
+			if (c == ' '){
+				sawSpace = true;
+				if (wordLength == 0){
+					emptyWords++;
+				} else {
+					capitals += emptyWords + (capital ? 1 : 0);
+					emptyWords = 0;
+				}
+				wordLength = 0;
+				capital = true;
+			} else {
+				wordLength++;
+				if (capital && !pairEnd){
+					if (pair){
+						int cp = Character.toCodePoint(c, text.charAt(i + 1));
+						capital = Character.toUpperCase(cp) == cp;
+					} else {
+						capital = table.upperStable(c);
+					}
+				}
+			}
+
+			if (c < 128){
+				state = feed(state, c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+			} else if (pair){
+				int lower = Character.toLowerCase(Character.toCodePoint(c, text.charAt(i + 1)));
+				if (Character.isSupplementaryCodePoint(lower)){
+					state = feed(state, Character.highSurrogate(lower));
+					state = feed(state, Character.lowSurrogate(lower));
+				} else {
+					state = feed(state, (char) lower);
+				}
+			} else if (!pairEnd){
+				String special = table.specialLower(c);
+				if (special == null){
+					state = feed(state, Character.toLowerCase(c));
+				} else {
+					for (int k = 0; k < special.length(); k++){
+						state = feed(state, special.charAt(k));
+					}
+				}
+			}
+		}
+
+		if (!sawSpace){
+			// split returns the whole text, even if empty
+			capitals = capital ? 1 : 0;
+		} else if (wordLength > 0){
+			capitals += emptyWords + (capital ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Feeds one lower cased char to the matcher
+	 */
+	private int feed(int state, char c){
+		if (!wordBoundaries){
+			state = keywords.next(state, c);
+			for (int match = keywords.firstMatch(state); match != -1; match = keywords.nextMatch(match)){
+				record(keywords.termAt(match));
+			}
+			return state;
+		}
+
+		boolean space = Character.isWhitespace(c);
+		if (space){
+			if (lastSpace){
+				return state;
+			}
+			c = ' ';
+		}
+		lastSpace = space;
+		boolean word = c < 128 ? WORD[c] : Character.isLetterOrDigit(c);
+		if (pendingCount > 0){
+			if (!(word && wordRing[(fed - 1) & (wordRing.length - 1)])){
+				commitPending();
+			}
+			pendingCount = 0;
+		}
+
+		state = keywords.next(state, c);
+		int mask = wordRing.length - 1;
+		wordRing[fed & mask] = word;
+		for (int match = keywords.firstMatch(state); match != -1; match = keywords.nextMatch(match)){
+			int start = fed - keywords.lengthAt(match) + 1;
+			if (start == 0 || !(wordRing[(start - 1) & mask] && wordRing[start & mask])){
+				if (pendingCount == pending.length){
+					pending = Arrays.copyOf(pending, pendingCount * 2);
+				}
+				pending[pendingCount++] = keywords.termAt(match);
+			}
+		}
+		fed++;
+		return state;
+	}
+
+	private void commitPending(){
+		for (int i = 0; i < pendingCount; i++){
+			record(pending[i]);
+		}
+	}
+
+	private void record(int term){
+		if (!matched[term]){
+			matched[term] = true;
+			if (foundCount == found.length){
+				found = Arrays.copyOf(found, foundCount * 2);
+			}
+			found[foundCount++] = term;
+		}
+	}
+
+	/**
+	 * Scan for locales whose case mappings depend on the surrounding chars
+	 */
+	private void runExact(String text){
+		words = countWords(text);
+		capitals = 0;
+		for (String word : text.split(" ")){
+			if (word.equals(word.toUpperCase())){
+				capitals++;
+			}
+		}
+		String lower = text.toLowerCase();
+		int state = keywords.start();
+		for (int i = 0; i < lower.length(); i++){
+			state = feed(state, lower.charAt(i));
+		}
+	}
+
+	/**
+	 * Case mappings of single chars in a locale
+	 */
+	private static class CaseTable {
+		final Locale locale;
+		/**
+		 * Bit set of the chars equal to their upper case
+		 */
+		final long[] upperStable = new long[1 << 10];
+		/**
+		 * Sorted chars whose lower case is not Character.toLowerCase, with their lower cases
+		 */
+		final char[] specialChars;
+		final String[] specialLowers;
+
+		private CaseTable(Locale locale){
+			this.locale = locale;
+			StringBuilder chars = new StringBuilder();
+			ArrayList<String> lowers = new ArrayList<String>();
+			for (int c = 0; c <= Character.MAX_VALUE; c++){
+				String single = String.valueOf((char) c);
+				if (single.toUpperCase(locale).equals(single)){
+					upperStable[c >>> 6] |= 1L << c;
+				}
+				String lower = single.toLowerCase(locale);
+				if (lower.length() != 1 || lower.charAt(0) != Character.toLowerCase((char) c)){
+					chars.append((char) c);
+					lowers.add(lower);
+				}
+			}
+			specialChars = chars.toString().toCharArray();
+			specialLowers = lowers.toArray(new String[0]);
+		}
+
+		/**
+		 * Table for the default locale, null if its case mappings depend on context
+		 */
+		static CaseTable current(){
+			Locale locale = Locale.getDefault();
+			String language = locale.getLanguage();
+			if (language.equals("tr") || language.equals("az") || language.equals("lt")){
+				return null;
+			}
+			CaseTable table = caseTable;
+			if (table == null || !table.locale.equals(locale)){
+				table = new CaseTable(locale);
+				caseTable = table;
+			}
+			return table;
+		}
+
+		boolean upperStable(char c){
+			return (upperStable[c >>> 6] & (1L << c)) != 0;
+		}
+
+		String specialLower(char c){
+			int i = Arrays.binarySearch(specialChars, c);
+			return i >= 0 ? specialLowers[i] : null;
+		}
+	}
+}
@@ -1,21 +1,36 @@
 package Model;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Represents a review on an online product reviewing system. 
  * Based on the Amazon system, but potentially applicable to similar systems
  * 
+ * A review of a Graph is a view of its row in the graph's ReviewStore,
+ * created when it is asked for; its summary and text are decoded from
+ * the store only when read.
+ * 
  * @author Ian Prins 001419316
  * @version 1.0
  * @see Product
+ * @see ReviewStore
  *
  */
 public class Review implements Comparable<Review>{
-	public final String userId, summary, text;
+	public final String userId;
 	public final Product product;
 	public final double helpfulness;
 	public final int time, score;
+	/**
+	 * Summary and text of a review that is not in a store
+	 */
+	private final String summary, text;
+	/**
+	 * Store holding the review, null if it is not in one
+	 */
+	final ReviewStore store;
+	/**
+	 * Position of the review in its store, -1 if it is not in one
+	 */
+	final int ordinal;
 	
 	/**
 	 * Constructor for Review
@@ -36,24 +51,80 @@ public class Review implements Comparable<Review>{
 		this.time = time;
 		this.summary = summary;
 		this.text = text;
+		this.store = null;
+		this.ordinal = -1;
+	}
+	
+	/**
+	 * Constructor for a view of a stored review
+	 * 
+	 * @param store Store holding the review
+	 * @param ordinal Position of the review in store
+	 */
+	Review(ReviewStore store, int ordinal){
+		this.product = store.product(ordinal);
+		this.userId = store.reviewer(ordinal).userId;
+		this.helpfulness = store.helpfulness(ordinal);
+		this.score = store.score(ordinal);
+		this.time = store.time(ordinal);
+		this.summary = null;
+		this.text = null;
+		this.store = store;
+		this.ordinal = ordinal;
+	}
+	
+	/**
+	 * Getter for the summary of the review
+	 * 
+	 * @return Short summary of review written by poster; null if there is none
+	 */
+	public String getSummary(){
+		return store == null ? summary : store.summary(ordinal);
+	}
+	
+	/**
+	 * Getter for the text of the review
+	 * 
+	 * @return Full text of review; null if there is none
+	 */
+	public String getText(){
+		return store == null ? text : store.text(ordinal);
+	}
+	
+	/**
+	 * Whether the review has a summary, without decoding it
+	 * 
+	 * @return false if its summary is null
+	 */
+	boolean hasSummary(){
+		return store == null ? summary != null : store.hasSummary(ordinal);
+	}
+	
+	/**
+	 * Whether the review has a text, without decoding it
+	 * 
+	 * @return false if its text is null
+	 */
+	boolean hasText(){
+		return store == null ? text != null : store.hasText(ordinal);
 	}
 	
 	/**
 	 * Word count of summary field
 	 * 
-	 * @return Number of words in this.summary
+	 * @return Number of words in the summary
 	 */
 	public int summaryWordCount(){
-		return wordCount(this.summary);
+		return wordCount(getSummary());
 	}
 	
 	/**
 	 * Word count of text field
 	 * 
-	 * @return Number of words in this.text
+	 * @return Number of words in the text
 	 */
 	public int textWordCount(){
-		return wordCount(this.text);
+		return wordCount(getText());
 	}
 	
 	/**
@@ -72,14 +143,7 @@ public class Review implements Comparable<Review>{
 	 * @return Number of words in str
 	 */
 	private static int wordCount(String str){
-		Pattern p = Pattern.compile("\\w+");
-		Matcher m = p.matcher(str);
-		
-		int i = 0;
-		while (m.find()){
-			i++;
-		}
-		return i;
+		return RatingKernel.countWords(str);
 	}
 	
 	/**
@@ -0,0 +1,160 @@
+package Model;
+
+import java.util.Arrays;
+
+/**
+ * Ordinals of the reviews of one product or reviewer in a ReviewStore,
+ * kept in a growable int array instead of a list of Review objects. The
+ * ordinals always stay in the order they were added; an order by time is
+ * kept beside them when asked for.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see ReviewStore
+ * @see Product
+ * @see Reviewer
+ *
+ */
+class ReviewList {
+	private ReviewStore store;
+	private int[] ordinals = new int[2];
+	private int size = 0;
+	/**
+	 * The first timeSorted ordinals ordered by time; null until asked for
+	 */
+	private int[] byTime = null;
+	private int timeSorted = 0;
+	/**
+	 * Most reviews added since the last time order that are inserted into
+	 * it one at a time; beyond that every review is sorted again
+	 */
+	private static final int MAX_INSERTED = 32;
+
+	/**
+	 * Adds a review
+	 *
+	 * @param store Store holding the review; the same for every review of the list
+	 * @param ordinal Position of the review in store
+	 */
+	void add(ReviewStore store, int ordinal){
+		if (this.store == null){
+			this.store = store;
+		} else if (this.store != store){
+			throw new IllegalArgumentException("Review belongs to another store");
+		}
+		if (size == ordinals.length){
+			ordinals = Arrays.copyOf(ordinals, size * 2);
+		}
+		ordinals[size++] = ordinal;
+	}
+
+	/**
+	 * Getter for the number of reviews
+	 *
+	 * @return number of reviews in the list
+	 */
+	int size(){
+		return size;
+	}
+
+	/**
+	 * Getter for a review's ordinal
+	 *
+	 * @param i Position in the list
+	 * @return position of the review in store
+	 */
+	int ordinal(int i){
+		return ordinals[i];
+	}
+
+	/**
+	 * Getter for the store holding the reviews
+	 *
+	 * @return the store; null if the list is empty
+	 */
+	ReviewStore store(){
+		return store;
+	}
+
+	/**
+	 * Getter for the time of a review
+	 *
+	 * @param i Position in the list
+	 * @return Unix time the review was posted
+	 */
+	int time(int i){
+		return store.time(ordinals[i]);
+	}
+
+	/**
+	 * Brings the order by time up to date. Reviews added since it was last
+	 * built are inserted into it, or, if there are many, every review is
+	 * sorted again. Reviews posted at the same time keep the order they
+	 * were added in.
+	 */
+	private void sortByTime(){
+		if (byTime == null || size - timeSorted > MAX_INSERTED){
+			Integer[] boxed = new Integer[size];
+			for (int i = 0; i < size; i++){
+				boxed[i] = ordinals[i];
+			}
+			Arrays.sort(boxed, (a, b) -> Integer.compare(store.time(a), store.time(b)));
+			byTime = new int[ordinals.length];
+			for (int i = 0; i < size; i++){
+				byTime[i] = boxed[i];
+			}
+			timeSorted = size;
+			return;
+		}
+		if (byTime.length < size){
+			byTime = Arrays.copyOf(byTime, ordinals.length);
+		}
+		for (; timeSorted < size; timeSorted++){
+			int ordinal = ordinals[timeSorted], time = store.time(ordinal), i = timeSorted;
+			for (; i > 0 && store.time(byTime[i - 1]) > time; i--){
+				byTime[i] = byTime[i - 1];
+			}
+			byTime[i] = ordinal;
+		}
+	}
+
+	/**
+	 * Returns the ordinals of the reviews added last
+	 *
+	 * @param n Number of reviews wanted
+	 * @return ordinals of the last n reviews added, or of all of them if there are fewer, in the order they were added
+	 */
+	int[] lastAdded(int n){
+		return Arrays.copyOfRange(ordinals, Math.max(0, size - n), size);
+	}
+
+	/**
+	 * Creates a view of every review
+	 *
+	 * @return the reviews, in the order they were added
+	 */
+	Review[] toArray(){
+		Review[] reviews = new Review[size];
+		for (int i = 0; i < size; i++){
+			reviews[i] = store.get(ordinals[i]);
+		}
+		return reviews;
+	}
+
+	/**
+	 * Creates a view of every review, ordered by time
+	 *
+	 * @return the reviews, earliest first; reviews posted at the same time in the order they were added
+	 */
+	Review[] toArrayByTime(){
+		if (size == 0){
+			return new Review[0];
+		}
+		sortByTime();
+		Review[] reviews = new Review[size];
+		for (int i = 0; i < size; i++){
+			reviews[i] = store.get(byTime[i]);
+		}
+		return reviews;
+	}
+}
@@ -0,0 +1,41 @@
+package Model;
+
+/**
+ * A single review as it appears in the dataset file, before it has been
+ * linked into a Graph. Holds the raw field values of one record.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see DatasetParser
+ * @see Review
+ *
+ */
+public class ReviewRecord {
+	public final String productId, userId, profileName, summary, text;
+	public final double helpfulness;
+	public final int score, time;
+
+	/**
+	 * Constructor for ReviewRecord
+	 *
+	 * @param productId ID of the product that was reviewed
+	 * @param userId ID of the user who wrote the review
+	 * @param profileName Name the user chose for themself
+	 * @param helpfulness Score between 0:1 is helpfullness rating given by other users. -1 means never rated
+	 * @param score Number of stars given in the review
+	 * @param time Unix time that the review was posted
+	 * @param summary Short summary of review writer by poster
+	 * @param text Full text of review
+	 */
+	public ReviewRecord(String productId, String userId, String profileName, double helpfulness,
+			int score, int time, String summary, String text){
+		this.productId = productId;
+		this.userId = userId;
+		this.profileName = profileName;
+		this.helpfulness = helpfulness;
+		this.score = score;
+		this.time = time;
+		this.summary = summary;
+		this.text = text;
+	}
+}
@@ -0,0 +1,705 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * All reviews of a Graph, stored as primitive columns indexed by review
+ * ordinal rather than as one object per review: the product's ordinal,
+ * the author's node index, the score, the helpfulness, the time, and the
+ * position of the summary and text in a text region.
+ *
+ * The summary and text of consecutive reviews are gathered as UTF-8 into
+ * blocks of about BLOCK_SIZE bytes. Each full block is compressed with a
+ * Deflater into pages allocated outside the Java heap, and is inflated
+ * again only when a summary or text in it is read; the last few blocks
+ * inflated are kept in a small cache. Building the graph, accuracy and
+ * rankings never read the text region.
+ *
+ * Reviews are read through Review views created on demand by get. One
+ * thread at a time may add reviews while any number of threads read the
+ * reviews already added: columns are replaced, never shrunk, when they
+ * grow, and size is published after a review is complete.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Review
+ * @see Graph
+ *
+ */
+public class ReviewStore {
+	/**
+	 * Size in bytes of a page of the compressed text region
+	 */
+	static final int PAGE_SIZE = 1 << 20;
+	/**
+	 * Bytes of summaries and texts gathered before a block is compressed
+	 */
+	static final int BLOCK_SIZE = 32 << 10;
+	/**
+	 * Number of inflated blocks kept for reuse
+	 */
+	private static final int CACHED_BLOCKS = 64;
+
+	/**
+	 * Columns and lookup tables, replaced as a whole when any of them grows
+	 */
+	private static class Columns {
+		int[] product, reviewer, time;
+		byte[] score;
+		/**
+		 * Kept as doubles, so ratings and displayed values are exactly those parsed
+		 */
+		double[] helpfulness;
+		/**
+		 * Block holding each review's summary and text, and where in the
+		 * inflated block its summary starts; its text follows
+		 */
+		int[] block, textStart;
+		/**
+		 * Bytes of each summary and text, -1 where there is none
+		 */
+		int[] summaryLength, textLength;
+		/**
+		 * Start in the region and compressed and inflated length of each sealed block
+		 */
+		long[] blockStart;
+		int[] blockLength, blockInflated;
+		ByteBuffer[] pages;
+		/**
+		 * Products by ordinal and reviewers by node index
+		 */
+		Product[] products;
+		Reviewer[] reviewers;
+
+		Columns(int capacity){
+			product = new int[capacity];
+			reviewer = new int[capacity];
+			time = new int[capacity];
+			score = new byte[capacity];
+			helpfulness = new double[capacity];
+			block = new int[capacity];
+			textStart = new int[capacity];
+			summaryLength = new int[capacity];
+			textLength = new int[capacity];
+			blockStart = new long[16];
+			blockLength = new int[16];
+			blockInflated = new int[16];
+			pages = new ByteBuffer[0];
+			products = new Product[16];
+			reviewers = new Reviewer[16];
+		}
+
+		Columns copy(){
+			Columns c = new Columns(0);
+			c.product = product;
+			c.reviewer = reviewer;
+			c.time = time;
+			c.score = score;
+			c.helpfulness = helpfulness;
+			c.block = block;
+			c.textStart = textStart;
+			c.summaryLength = summaryLength;
+			c.textLength = textLength;
+			c.blockStart = blockStart;
+			c.blockLength = blockLength;
+			c.blockInflated = blockInflated;
+			c.pages = pages;
+			c.products = products;
+			c.reviewers = reviewers;
+			return c;
+		}
+	}
+
+	/**
+	 * The block still being filled, not yet compressed. Replaced when it grows or is sealed.
+	 */
+	private static class OpenBlock {
+		final int number;
+		final byte[] bytes;
+
+		OpenBlock(int number, byte[] bytes){
+			this.number = number;
+			this.bytes = bytes;
+		}
+	}
+
+	private volatile Columns columns;
+	private volatile OpenBlock open = new OpenBlock(0, new byte[BLOCK_SIZE]);
+	private volatile int size = 0;
+	/**
+	 * Bytes used in the open block, and in the compressed text region
+	 */
+	private int openLength = 0;
+	private long regionSize = 0;
+	/**
+	 * Compresses blocks as they are sealed; used only by the adding thread
+	 */
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	/**
+	 * Idle inflaters, reused by readers so that their native zlib streams are
+	 * ended rather than left for the collector; at most POOLED_INFLATERS kept
+	 */
+	private static final ArrayDeque<Inflater> INFLATERS = new ArrayDeque<Inflater>();
+	private static final int POOLED_INFLATERS = 8;
+	/**
+	 * Inflated blocks by number, least recently used first
+	 */
+	private final LinkedHashMap<Integer, byte[]> cache = new LinkedHashMap<Integer, byte[]>(CACHED_BLOCKS * 2, 0.75f, true){
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest){
+			return size() > CACHED_BLOCKS;
+		}
+	};
+
+	/**
+	 * Constructor for an empty store
+	 */
+	public ReviewStore(){
+		columns = new Columns(16);
+	}
+
+	/**
+	 * Getter for the number of reviews
+	 *
+	 * @return number of reviews stored
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Returns a view of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return Review reading its summary and text from this store
+	 */
+	public Review get(int i){
+		check(i);
+		return new Review(this, i);
+	}
+
+	/**
+	 * Adds a review. Only one thread may add reviews at a time.
+	 *
+	 * @param product Product reviewed, with its ordinal assigned
+	 * @param node Node of the author
+	 * @param score Number of stars given, between -128 and 127
+	 * @param helpfulness Helpfulness rating, -1 if never rated
+	 * @param time Unix time the review was posted
+	 * @param summary Summary of the review; may be null
+	 * @param text Text of the review; may be null
+	 * @return ordinal of the new review
+	 */
+	int add(Product product, Node node, int score, double helpfulness, int time, String summary, String text){
+		if (score != (byte) score){
+			throw new IllegalArgumentException("Score out of range: " + score);
+		}
+		byte[] summaryBytes = summary == null ? null : summary.getBytes(StandardCharsets.UTF_8);
+		byte[] textBytes = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+		int bytes = (summaryBytes == null ? 0 : summaryBytes.length) + (textBytes == null ? 0 : textBytes.length);
+		if (openLength > 0 && openLength + bytes > BLOCK_SIZE){
+			seal();
+		}
+
+		int i = size;
+		Columns c = grow(i + 1, product.ordinal + 1, node.index + 1, 0, 0);
+		c.product[i] = product.ordinal;
+		c.reviewer[i] = node.index;
+		c.score[i] = (byte) score;
+		c.helpfulness[i] = helpfulness;
+		c.time[i] = time;
+		c.block[i] = open.number;
+		c.textStart[i] = openLength;
+		c.summaryLength[i] = summaryBytes == null ? -1 : summaryBytes.length;
+		c.textLength[i] = textBytes == null ? -1 : textBytes.length;
+		c.products[product.ordinal] = product;
+		c.reviewers[node.index] = node.value;
+		if (summaryBytes != null){
+			copyIn(summaryBytes);
+		}
+		if (textBytes != null){
+			copyIn(textBytes);
+		}
+		size = i + 1;
+		return i;
+	}
+
+	/**
+	 * Makes every column and table large enough, publishing new columns if any grew
+	 */
+	private Columns grow(int reviews, int products, int reviewers, int blocks, long region){
+		Columns c = columns, grown = null;
+		if (reviews > c.product.length){
+			grown = c.copy();
+			int capacity = Math.max(reviews, c.product.length * 2);
+			grown.product = Arrays.copyOf(c.product, capacity);
+			grown.reviewer = Arrays.copyOf(c.reviewer, capacity);
+			grown.time = Arrays.copyOf(c.time, capacity);
+			grown.score = Arrays.copyOf(c.score, capacity);
+			grown.helpfulness = Arrays.copyOf(c.helpfulness, capacity);
+			grown.block = Arrays.copyOf(c.block, capacity);
+			grown.textStart = Arrays.copyOf(c.textStart, capacity);
+			grown.summaryLength = Arrays.copyOf(c.summaryLength, capacity);
+			grown.textLength = Arrays.copyOf(c.textLength, capacity);
+		}
+		if (products > c.products.length){
+			grown = grown == null ? c.copy() : grown;
+			grown.products = Arrays.copyOf(c.products, Math.max(products, c.products.length * 2));
+		}
+		if (reviewers > c.reviewers.length){
+			grown = grown == null ? c.copy() : grown;
+			grown.reviewers = Arrays.copyOf(c.reviewers, Math.max(reviewers, c.reviewers.length * 2));
+		}
+		if (blocks > c.blockStart.length){
+			grown = grown == null ? c.copy() : grown;
+			int capacity = Math.max(blocks, c.blockStart.length * 2);
+			grown.blockStart = Arrays.copyOf(c.blockStart, capacity);
+			grown.blockLength = Arrays.copyOf(c.blockLength, capacity);
+			grown.blockInflated = Arrays.copyOf(c.blockInflated, capacity);
+		}
+		long pagesNeeded = (region + PAGE_SIZE - 1) / PAGE_SIZE;
+		if (pagesNeeded > c.pages.length){
+			grown = grown == null ? c.copy() : grown;
+			grown.pages = Arrays.copyOf(c.pages, (int) pagesNeeded);
+			for (int p = c.pages.length; p < pagesNeeded; p++){
+				grown.pages[p] = ByteBuffer.allocateDirect(PAGE_SIZE);
+			}
+		}
+		if (grown != null){
+			columns = grown;
+			return grown;
+		}
+		return c;
+	}
+
+	/**
+	 * Appends bytes to the open block, growing it for a review larger than a block
+	 */
+	private void copyIn(byte[] bytes){
+		OpenBlock o = open;
+		if (openLength + bytes.length > o.bytes.length){
+			o = new OpenBlock(o.number, Arrays.copyOf(o.bytes, Math.max(openLength + bytes.length, BLOCK_SIZE)));
+			open = o;
+		}
+		System.arraycopy(bytes, 0, o.bytes, openLength, bytes.length);
+		openLength += bytes.length;
+	}
+
+	/**
+	 * Compresses the open block into the text region and opens the next one
+	 */
+	private void seal(){
+		OpenBlock o = open;
+		byte[] compressed = compress(o.bytes, openLength);
+		int b = o.number;
+		Columns c = grow(0, 0, 0, b + 1, regionSize + compressed.length);
+		c.blockStart[b] = regionSize;
+		c.blockLength[b] = compressed.length;
+		c.blockInflated[b] = openLength;
+		copyOut(c.pages, regionSize, compressed, compressed.length, true);
+		regionSize += compressed.length;
+		// The block is readable from the region before the open block moves on
+		columns = c;
+		open = new OpenBlock(b + 1, new byte[BLOCK_SIZE]);
+		openLength = 0;
+	}
+
+	/**
+	 * Deflates the first length bytes of raw
+	 */
+	private byte[] compress(byte[] raw, int length){
+		deflater.reset();
+		deflater.setInput(raw, 0, length);
+		deflater.finish();
+		byte[] out = new byte[Math.max(64, length / 2)];
+		int done = 0;
+		while (!deflater.finished()){
+			if (done == out.length){
+				out = Arrays.copyOf(out, out.length * 2);
+			}
+			done += deflater.deflate(out, done, out.length - done);
+		}
+		return Arrays.copyOf(out, done);
+	}
+
+	/**
+	 * Copies bytes between an array and the pages at a position of the region
+	 *
+	 * @param write true to copy bytes into the pages, false to copy from them
+	 */
+	private static void copyOut(ByteBuffer[] pages, long position, byte[] bytes, int length, boolean write){
+		int done = 0;
+		while (done < length){
+			int page = (int) (position / PAGE_SIZE), offset = (int) (position % PAGE_SIZE);
+			int chunk = Math.min(length - done, PAGE_SIZE - offset);
+			ByteBuffer view = pages[page].duplicate();
+			view.position(offset);
+			if (write){
+				view.put(bytes, done, chunk);
+			} else {
+				view.get(bytes, done, chunk);
+			}
+			done += chunk;
+			position += chunk;
+		}
+	}
+
+	/**
+	 * Returns the inflated bytes of a block, from the open block, the cache or the region
+	 *
+	 * @param b Number of the block
+	 * @return bytes of the block; only read, never changed
+	 */
+	private byte[] block(int b){
+		OpenBlock o = open;
+		if (o.number == b){
+			return o.bytes;
+		}
+		// Read after open, so a block sealed since is seen in the region
+		Columns c = columns;
+		synchronized (cache){
+			byte[] cached = cache.get(b);
+			if (cached != null){
+				return cached;
+			}
+		}
+		byte[] compressed = new byte[c.blockLength[b]];
+		copyOut(c.pages, c.blockStart[b], compressed, compressed.length, false);
+		byte[] inflated = new byte[c.blockInflated[b]];
+		Inflater inflater = takeInflater();
+		try {
+			inflate(inflater, compressed, inflated, inflated.length);
+		} catch (DataFormatException e){
+			throw new IllegalStateException("Text block " + b + " is corrupt", e);
+		} finally {
+			returnInflater(inflater);
+		}
+		synchronized (cache){
+			cache.put(b, inflated);
+		}
+		return inflated;
+	}
+
+	/**
+	 * Takes an idle inflater from the pool, or creates one if there is none
+	 *
+	 * @return an inflater to be given back with returnInflater
+	 */
+	private static Inflater takeInflater(){
+		synchronized (INFLATERS){
+			Inflater inflater = INFLATERS.poll();
+			if (inflater != null){
+				return inflater;
+			}
+		}
+		return new Inflater();
+	}
+
+	/**
+	 * Gives back an inflater, ending it if the pool is full
+	 *
+	 * @param inflater Inflater taken with takeInflater
+	 */
+	private static void returnInflater(Inflater inflater){
+		synchronized (INFLATERS){
+			if (INFLATERS.size() < POOLED_INFLATERS){
+				INFLATERS.push(inflater);
+				return;
+			}
+		}
+		inflater.end();
+	}
+
+	/**
+	 * Inflates a compressed block
+	 *
+	 * @param length Number of bytes the block inflates to
+	 * @throws DataFormatException if the block is corrupt
+	 */
+	private static void inflate(Inflater inflater, byte[] compressed, byte[] out, int length) throws DataFormatException {
+		inflater.reset();
+		inflater.setInput(compressed);
+		int done = 0;
+		while (done < length){
+			int n = inflater.inflate(out, done, length - done);
+			if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())){
+				throw new DataFormatException("Block ends after " + done + " of " + length + " bytes");
+			}
+			done += n;
+		}
+	}
+
+	/**
+	 * Decodes a string from a block
+	 */
+	private String decode(int block, int start, int length){
+		if (length < 0){
+			return null;
+		}
+		return new String(block(block), start, length, StandardCharsets.UTF_8);
+	}
+
+	private void check(int i){
+		if (i < 0 || i >= size){
+			throw new IndexOutOfBoundsException("Review " + i + " of " + size);
+		}
+	}
+
+	/**
+	 * Getter for the product of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return Product reviewed
+	 */
+	public Product product(int i){
+		check(i);
+		Columns c = columns;
+		return c.products[c.product[i]];
+	}
+
+	/**
+	 * Getter for the author of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return Reviewer who wrote it
+	 */
+	public Reviewer reviewer(int i){
+		check(i);
+		Columns c = columns;
+		return c.reviewers[c.reviewer[i]];
+	}
+
+	/**
+	 * Getter for the ordinal of the product of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return Product.ordinal of the product reviewed
+	 */
+	int productOrdinal(int i){
+		check(i);
+		return columns.product[i];
+	}
+
+	/**
+	 * Getter for the node index of the author of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return Node.index of the author
+	 */
+	int reviewerIndex(int i){
+		check(i);
+		return columns.reviewer[i];
+	}
+
+	/**
+	 * Getter for the score of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return number of stars given
+	 */
+	public int score(int i){
+		check(i);
+		return columns.score[i];
+	}
+
+	/**
+	 * Getter for the helpfulness of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return helpfulness between 0 and 1, -1 if never rated
+	 */
+	public double helpfulness(int i){
+		check(i);
+		return columns.helpfulness[i];
+	}
+
+	/**
+	 * Getter for the time of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return Unix time the review was posted
+	 */
+	public int time(int i){
+		check(i);
+		return columns.time[i];
+	}
+
+	/**
+	 * Decodes the summary of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return the summary; null if it has none
+	 */
+	public String summary(int i){
+		check(i);
+		Columns c = columns;
+		return decode(c.block[i], c.textStart[i], c.summaryLength[i]);
+	}
+
+	/**
+	 * Decodes the text of a review
+	 *
+	 * @param i Ordinal of the review
+	 * @return the text; null if it has none
+	 */
+	public String text(int i){
+		check(i);
+		Columns c = columns;
+		return decode(c.block[i], c.textStart[i] + Math.max(0, c.summaryLength[i]), c.textLength[i]);
+	}
+
+	/**
+	 * Whether a review has a summary, without decoding it
+	 *
+	 * @param i Ordinal of the review
+	 * @return false if its summary is null
+	 */
+	boolean hasSummary(int i){
+		check(i);
+		return columns.summaryLength[i] >= 0;
+	}
+
+	/**
+	 * Whether a review has a text, without decoding it
+	 *
+	 * @param i Ordinal of the review
+	 * @return false if its text is null
+	 */
+	boolean hasText(int i){
+		check(i);
+		return columns.textLength[i] >= 0;
+	}
+
+	/**
+	 * Approximate number of bytes held by the columns, the open block and
+	 * the compressed text region, which is outside the Java heap
+	 *
+	 * @return bytes allocated for reviews
+	 */
+	public long footprint(){
+		Columns c = columns;
+		return (long) c.product.length * (4 + 4 + 4 + 1 + 8 + 4 + 4 + 4 + 4)
+				+ (long) c.blockStart.length * (8 + 4 + 4) + open.bytes.length + (long) c.pages.length * PAGE_SIZE;
+	}
+
+	/**
+	 * Number of bytes the summaries and texts take once compressed
+	 *
+	 * @return bytes used in the compressed text region
+	 */
+	public long compressedSize(){
+		return regionSize;
+	}
+
+	/**
+	 * Writes the columns and compressed blocks to a snapshot. The open
+	 * block is written compressed as the last block, without sealing it.
+	 *
+	 * @param out Snapshot being written
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	void writeTo(GraphSnapshot.Output out) throws IOException {
+		Columns c = columns;
+		OpenBlock o = open;
+		int n = size;
+		out.writeInt(n);
+		out.writeInts(c.product, n);
+		out.writeInts(c.reviewer, n);
+		out.writeBytes(c.score, n);
+		out.writeDoubles(c.helpfulness, n);
+		out.writeInts(c.time, n);
+		out.writeInts(c.block, n);
+		out.writeInts(c.textStart, n);
+		out.writeInts(c.summaryLength, n);
+		out.writeInts(c.textLength, n);
+		int blocks = o.number + 1;
+		int[] inflated = Arrays.copyOf(c.blockInflated, blocks);
+		inflated[o.number] = openLength;
+		out.writeInts(inflated, blocks);
+		for (int b = 0; b < o.number; b++){
+			byte[] compressed = new byte[c.blockLength[b]];
+			copyOut(c.pages, c.blockStart[b], compressed, compressed.length, false);
+			out.writeBytes(compressed, compressed.length);
+		}
+		byte[] last = compress(o.bytes, openLength);
+		out.writeBytes(last, last.length);
+	}
+
+	/**
+	 * Reads a store written by writeTo
+	 *
+	 * @param in Snapshot being read
+	 * @param products Products by ordinal
+	 * @param reviewers Reviewers by node index
+	 * @return the restored store
+	 * @throws IOException if the snapshot cannot be read
+	 */
+	static ReviewStore readFrom(GraphSnapshot.Input in, Product[] products, Reviewer[] reviewers) throws IOException {
+		int n = in.readInt();
+		Columns c = new Columns(0);
+		c.product = in.readInts(n);
+		c.reviewer = in.readInts(n);
+		c.score = in.readBytes();
+		if (c.score.length != n){
+			throw new IOException("Snapshot is corrupt: expected " + n + " scores, found " + c.score.length);
+		}
+		c.helpfulness = in.readDoubles(n);
+		c.time = in.readInts(n);
+		c.block = in.readInts(n);
+		c.textStart = in.readInts(n);
+		c.summaryLength = in.readInts(n);
+		c.textLength = in.readInts(n);
+		c.blockInflated = in.readInts(-1);
+		int blocks = c.blockInflated.length;
+		if (blocks == 0){
+			throw new IOException("Snapshot is corrupt: no text blocks");
+		}
+		ReviewStore store = new ReviewStore();
+		c.blockStart = new long[blocks];
+		c.blockLength = new int[blocks];
+		c.pages = new ByteBuffer[0];
+		for (int b = 0; b < blocks - 1; b++){
+			byte[] compressed = in.readBytes();
+			long end = store.regionSize + compressed.length;
+			if ((long) c.pages.length * PAGE_SIZE < end){
+				int had = c.pages.length;
+				c.pages = Arrays.copyOf(c.pages, (int) ((end + PAGE_SIZE - 1) / PAGE_SIZE));
+				for (int p = had; p < c.pages.length; p++){
+					c.pages[p] = ByteBuffer.allocateDirect(PAGE_SIZE);
+				}
+			}
+			c.blockStart[b] = store.regionSize;
+			c.blockLength[b] = compressed.length;
+			copyOut(c.pages, store.regionSize, compressed, compressed.length, true);
+			store.regionSize = end;
+		}
+		byte[] last = in.readBytes();
+		store.openLength = c.blockInflated[blocks - 1];
+		byte[] raw = new byte[Math.max(BLOCK_SIZE, store.openLength)];
+		Inflater inflater = new Inflater();
+		try {
+			inflate(inflater, last, raw, store.openLength);
+		} catch (DataFormatException e){
+			throw new IOException("Snapshot is corrupt: " + e.getMessage());
+		} finally {
+			inflater.end();
+		}
+		c.products = products.length == 0 ? new Product[16] : products;
+		c.reviewers = reviewers.length == 0 ? new Reviewer[16] : reviewers;
+		store.columns = c;
+		store.open = new OpenBlock(blocks - 1, raw);
+		store.size = n;
+		return store;
+	}
+}
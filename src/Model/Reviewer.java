@@ -1,5 +1,7 @@
 package Model;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * ADT representing a user of an online reviewing system
@@ -12,7 +14,15 @@ import java.util.ArrayList;
  *
  */
 public class Reviewer implements Comparable<Reviewer>{
-	public ArrayList<Review> reviews;
+	/**
+	 * Ordinals of the reviews written, in the order they were added.
+	 * Synchronized on, as reviews may be read while the graph is loading.
+	 */
+	final ReviewList reviews = new ReviewList();
+	/**
+	 * Reviews written that are in no ReviewStore, such as ones built by hand; null until there is one
+	 */
+	private ArrayList<Review> unstoredReviews = null;
 	public String userId, profileName;
 	public double accuracy = 0;
 	
@@ -23,19 +33,104 @@ public class Reviewer implements Comparable<Reviewer>{
 	 * @param profileName String that the user chose for themself; need not be unique
 	 */
 	public Reviewer(String userId, String profileName){
-		this.reviews = new ArrayList<Review>();
 		this.userId = userId;
 		this.profileName = profileName;
 	}
 	
 	/**
-	 * Add a Review to internal list of Reviews, updating accuracy accordingly
+	 * Add a Review to internal list of Reviews. Accuracy is not updated until
+	 * the graph recomputes it, as it depends on the final product averages.
 	 * 
 	 * @param review Given review to add
+	 * @see recomputeAccuracy
 	 */
 	public void addReview(Review review){
-		this.accuracy = (this.accuracy*reviews.size() + review.getAccuracy())/(reviews.size()+1);
-		this.reviews.add(review);
+		synchronized (reviews){
+			if (review.store != null){
+				this.reviews.add(review.store, review.ordinal);
+				return;
+			}
+			if (unstoredReviews == null){
+				unstoredReviews = new ArrayList<Review>();
+			}
+			unstoredReviews.add(review);
+		}
+	}
+	
+	/**
+	 * Add a stored Review to internal list of Reviews
+	 * 
+	 * @param store Store holding the review
+	 * @param ordinal Position of the review in store
+	 */
+	void addReview(ReviewStore store, int ordinal){
+		synchronized (reviews){
+			this.reviews.add(store, ordinal);
+		}
+	}
+	
+	/**
+	 * Getter for the Reviews written by this Reviewer
+	 * 
+	 * @return array of the reviews, in the order they were added; reviews in no ReviewStore come last
+	 */
+	public Review[] getReviews(){
+		synchronized (reviews){
+			Review[] stored = reviews.toArray();
+			if (unstoredReviews == null){
+				return stored;
+			}
+			Review[] all = Arrays.copyOf(stored, stored.length + unstoredReviews.size());
+			for (int i = 0; i < unstoredReviews.size(); i++){
+				all[stored.length + i] = unstoredReviews.get(i);
+			}
+			return all;
+		}
+	}
+	
+	/**
+	 * Getter for the number of Reviews written by this Reviewer
+	 * 
+	 * @return number of reviews
+	 */
+	public int getNumReviews(){
+		synchronized (reviews){
+			return reviews.size() + (unstoredReviews == null ? 0 : unstoredReviews.size());
+		}
+	}
+	
+	/**
+	 * Sets accuracy to the mean accuracy of this Reviewer's reviews against
+	 * the current average score of each product
+	 */
+	void recomputeAccuracy(){
+		double sum = 0;
+		ReviewStore store = reviews.store();
+		for (int i = 0; i < reviews.size(); i++){
+			int ordinal = reviews.ordinal(i);
+			sum += Math.abs(store.score(ordinal) - store.product(ordinal).getAverage());
+		}
+		setAccuracy(sum, reviews.size());
+	}
+	
+	/**
+	 * Sets accuracy from the deviations of this Reviewer's stored reviews,
+	 * adding those of its reviews in no ReviewStore, so every way of
+	 * computing it counts the same reviews
+	 * 
+	 * @param storedDeviation Sum of the deviations of the stored reviews from their product's average
+	 * @param storedCount Number of stored reviews
+	 */
+	void setAccuracy(double storedDeviation, int storedCount){
+		synchronized (reviews){
+			if (unstoredReviews != null){
+				for (Review review : unstoredReviews){
+					storedDeviation += review.getAccuracy();
+				}
+				storedCount += unstoredReviews.size();
+			}
+		}
+		this.accuracy = storedCount == 0 ? 0 : storedDeviation / storedCount;
 	}
 	
 	/**
@@ -0,0 +1,126 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash indexes over the reviewers of a Graph, filled as reviewers are
+ * added. Finds a reviewer's Node by user ID, and all reviewers sharing
+ * a profile name regardless of case, in constant time. User IDs are
+ * pooled, so each is kept once and maps to a dense id rather than
+ * through a map entry per reviewer. Lookups may run at the same time as
+ * each other, but not at the same time as add.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ * @see Reviewer
+ *
+ */
+public class ReviewerIndex {
+	private final IdentifierPool userIds = new IdentifierPool();
+	/**
+	 * Node of each reviewer by the id its user ID has in userIds
+	 */
+	private Node[] byUserId = new Node[16];
+	/**
+	 * Reviewers for each case-folded profile name, ordered by user ID.
+	 */
+	private final HashMap<String, Reviewer[]> byName;
+
+	/**
+	 * Constructor for an empty index, to which reviewers are added as they are read
+	 */
+	ReviewerIndex(){
+		byName = new HashMap<String, Reviewer[]>();
+	}
+
+	/**
+	 * Constructor to index the given nodes
+	 *
+	 * @param nodes All nodes in the graph, ordered by their reviewer's ID
+	 */
+	public ReviewerIndex(Iterable<Node> nodes){
+		HashMap<String, ArrayList<Reviewer>> names = new HashMap<String, ArrayList<Reviewer>>();
+		for (Node n : nodes){
+			put(n);
+			String name = fold(n.value.profileName);
+			ArrayList<Reviewer> same = names.get(name);
+			if (same == null){
+				same = new ArrayList<Reviewer>(1);
+				names.put(name, same);
+			}
+			same.add(n.value);
+		}
+		byName = new HashMap<String, Reviewer[]>(names.size() * 4 / 3 + 1);
+		for (Map.Entry<String, ArrayList<Reviewer>> e : names.entrySet()){
+			byName.put(e.getKey(), e.getValue().toArray(new Reviewer[0]));
+		}
+	}
+
+	/**
+	 * Indexes a node added to the graph after the index was built
+	 *
+	 * @param n Node of a reviewer not yet in the index
+	 */
+	public void add(Node n){
+		put(n);
+		String name = fold(n.value.profileName);
+		Reviewer[] same = byName.get(name);
+		if (same == null){
+			byName.put(name, new Reviewer[] {n.value});
+			return;
+		}
+		int i = -Arrays.binarySearch(same, n.value) - 1;
+		Reviewer[] grown = new Reviewer[same.length + 1];
+		System.arraycopy(same, 0, grown, 0, i);
+		grown[i] = n.value;
+		System.arraycopy(same, i, grown, i + 1, same.length - i);
+		byName.put(name, grown);
+	}
+
+	/**
+	 * Returns the Node of the reviewer with the given ID
+	 *
+	 * @param userID identifies user
+	 * @return the Node for userID, null if it does not exist
+	 */
+	public Node byUserId(String userID){
+		int id = userIds.find(userID);
+		return id < 0 ? null : byUserId[id];
+	}
+
+	/**
+	 * Maps a node's user ID to the node, replacing any node it mapped to
+	 */
+	private void put(Node n){
+		int id = userIds.id(n.value.userId);
+		if (id == byUserId.length){
+			byUserId = Arrays.copyOf(byUserId, id * 2);
+		}
+		byUserId[id] = n;
+	}
+
+	/**
+	 * Returns every reviewer whose profile name matches, ignoring case
+	 *
+	 * @param name profile name to look up
+	 * @return matching Reviewers ordered by user ID; empty if there are none
+	 */
+	public Reviewer[] byName(String name){
+		Reviewer[] same = byName.get(fold(name));
+		return same == null ? new Reviewer[0] : same.clone();
+	}
+
+	/**
+	 * Case folding applied to profile names before they are compared
+	 *
+	 * @param name profile name
+	 * @return folded name
+	 */
+	private static String fold(String name){
+		return name.toLowerCase();
+	}
+}
@@ -0,0 +1,179 @@
+package Model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rates reviews read from a stream in the labeled record format, such as
+ * standard input, against a loaded Graph. Records are rated by a pool of
+ * worker threads as they arrive and the results are written in input
+ * order, each as soon as it and every earlier one are ready. No more than
+ * a window of records is held at once, so streams of any length are rated
+ * in bounded memory.
+ *
+ * Each output line is tab separated: the record's position in the stream,
+ * counting from 1, its rating, and the contribution of every attribute as
+ * comma separated name=value pairs, as written by BatchRater. A malformed
+ * record gives its position followed by "malformed".
+ *
+ * @author Ian
+ * @version 1.0
+ * @see BatchRater
+ * @see DatasetParser
+ */
+public class StreamRater {
+	/**
+	 * Marks the end of the results in the queue of pending lines
+	 */
+	private static final Future<String> END = CompletableFuture.completedFuture(null);
+
+	private final Graph graph;
+	private final int workers, window;
+
+	/**
+	 * Constructor for a stream rater
+	 *
+	 * @param graph Graph the reviews are rated against; not changed while rating
+	 * @param workers Number of worker threads
+	 * @param window Largest number of records read but not yet written
+	 */
+	public StreamRater(Graph graph, int workers, int window){
+		if (workers < 1 || window < 1){
+			throw new IllegalArgumentException("Need at least one worker and a window of at least one record");
+		}
+		this.graph = graph;
+		this.workers = workers;
+		this.window = window;
+	}
+
+	/**
+	 * Rates every record of a stream, writing one line per record to out.
+	 * out is flushed whenever every record read so far has been written.
+	 *
+	 * @param in Stream of records; not closed
+	 * @param out Writer receiving the results; not closed
+	 * @return number of records read, counting malformed ones
+	 * @throws IOException if the stream cannot be read or the results cannot be written
+	 */
+	public long rate(InputStream in, Writer out) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		ArrayBlockingQueue<Future<String>> pending = new ArrayBlockingQueue<Future<String>>(window);
+		AtomicReference<IOException> writeError = new AtomicReference<IOException>();
+		Thread writer = new Thread(() -> write(pending, out, writeError), "StreamRater writer");
+		writer.start();
+		long[] position = {0};
+		try {
+			DatasetParser.read(in, record -> {
+				long n = ++position[0];
+				if (writeError.get() != null){
+					throw new UncheckedIOException(writeError.get());
+				}
+				try {
+					pending.put(pool.submit(() -> line(n, record)));
+				} catch (InterruptedException e){
+					Thread.currentThread().interrupt();
+					throw new UncheckedIOException(new InterruptedIOException("Interrupted after " + n + " records"));
+				}
+			});
+			pending.put(END);
+			writer.join();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted after " + position[0] + " records");
+		} catch (UncheckedIOException e){
+			throw e.getCause();
+		} finally {
+			// Reached without END on any failure, including read errors and runtime exceptions of the parser
+			stop(writer);
+			pool.shutdownNow();
+		}
+		if (writeError.get() != null){
+			throw writeError.get();
+		}
+		return position[0];
+	}
+
+	/**
+	 * Interrupts the writer if it is still running and waits for it to end,
+	 * keeping the interrupt status of the calling thread
+	 */
+	private static void stop(Thread writer){
+		boolean interrupted = false;
+		while (writer.isAlive()){
+			writer.interrupt();
+			try {
+				writer.join();
+			} catch (InterruptedException e){
+				interrupted = true;
+			}
+		}
+		if (interrupted){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes the pending lines in order until END. After a record cannot be
+	 * rated or a write fails, the remaining lines are still taken but not
+	 * written, so that reading is never blocked.
+	 */
+	private static void write(ArrayBlockingQueue<Future<String>> pending, Writer out, AtomicReference<IOException> error){
+		try {
+			for (Future<String> next = pending.take(); next != END; next = pending.take()){
+				String line;
+				try {
+					line = next.get();
+				} catch (ExecutionException e){
+					error.compareAndSet(null, new IOException("Could not rate a record", e.getCause()));
+					continue;
+				}
+				if (error.get() != null){
+					continue;
+				}
+				try {
+					out.write(line);
+					if (pending.isEmpty()){
+						out.flush();
+					}
+				} catch (IOException e){
+					error.compareAndSet(null, e);
+				}
+			}
+			if (error.get() == null){
+				out.flush();
+			}
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+		} catch (IOException e){
+			error.compareAndSet(null, e);
+		}
+	}
+
+	/**
+	 * Rates one record
+	 *
+	 * @param n Position of the record in the stream
+	 * @param record The record; null if it was malformed
+	 * @return the output line for the record
+	 */
+	private String line(long n, ReviewRecord record){
+		StringBuilder line = new StringBuilder().append(n).append('\t');
+		if (record == null){
+			return line.append("malformed\n").toString();
+		}
+		Review review = new Review(graph.products.get(record.productId), record.userId, record.helpfulness, record.score,
+				record.time, record.summary, record.text);
+		BatchRater.appendRating(line, new Rater(graph, review));
+		return line.append('\n').toString();
+	}
+}
@@ -0,0 +1,483 @@
+package Model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted index over one text field of the reviews in a Graph. Text is
+ * split into lower-cased tokens of letters and digits. For every token the
+ * index keeps a compressed posting list: the ordinals of the reviews that
+ * contain it and the positions it appears at, delta encoded as variable
+ * length integers. Supports term, AND, OR and phrase queries; results are
+ * always review ordinals in ascending order.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see Graph
+ *
+ */
+public class TextIndex {
+	/**
+	 * How the terms of a query are combined
+	 */
+	public enum Mode {
+		/** Reviews containing every term */
+		ALL,
+		/** Reviews containing at least one term */
+		ANY,
+		/** Reviews containing the terms next to each other, in order */
+		PHRASE
+	}
+
+	private final HashMap<String, PostingList> postings = new HashMap<String, PostingList>();
+	private int lastOrdinal = -1;
+
+	/**
+	 * Adds the text of a review. Reviews must be added in ascending ordinal order.
+	 *
+	 * @param ordinal Position of the review in the graph
+	 * @param text Text to index; null is ignored
+	 */
+	public void add(int ordinal, String text){
+		if (ordinal <= lastOrdinal){
+			throw new IllegalArgumentException("Review " + ordinal + " added out of order");
+		}
+		lastOrdinal = ordinal;
+		if (text == null){
+			return;
+		}
+		String[] tokens = tokenize(text);
+		ArrayList<PostingList> found = new ArrayList<PostingList>();
+		for (int position = 0; position < tokens.length; position++){
+			PostingList list = postings.get(tokens[position]);
+			if (list == null){
+				list = new PostingList();
+				postings.put(tokens[position], list);
+			}
+			if (list.add(ordinal, position)){
+				found.add(list);
+			}
+		}
+		for (PostingList list : found){
+			list.seal();
+		}
+	}
+
+	/**
+	 * Releases the spare capacity of every posting list. Call once the bulk
+	 * of the reviews have been added.
+	 */
+	public void trim(){
+		for (PostingList list : postings.values()){
+			list.trim();
+		}
+	}
+
+	/**
+	 * Getter for the number of distinct terms
+	 *
+	 * @return number of terms in the index
+	 */
+	public int termCount(){
+		return postings.size();
+	}
+
+	/**
+	 * Writes every posting list to a snapshot
+	 *
+	 * @param out Snapshot being written
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	void writeTo(GraphSnapshot.Output out) throws IOException {
+		out.writeInt(lastOrdinal);
+		out.writeInt(postings.size());
+		for (Map.Entry<String, PostingList> e : postings.entrySet()){
+			PostingList list = e.getValue();
+			out.writeString(e.getKey());
+			out.writeInts(new int[] {list.docCount, list.lastOrdinal, list.skipCount}, 3);
+			out.writeBytes(list.docData, list.docLength);
+			out.writeBytes(list.positionData, list.positionLength);
+			out.writeInts(list.skipOrdinal, list.skipCount);
+			out.writeInts(list.skipDocOffset, list.skipCount);
+			out.writeInts(list.skipPositionOffset, list.skipCount);
+		}
+	}
+
+	/**
+	 * Reads an index written by writeTo
+	 *
+	 * @param in Snapshot being read
+	 * @return the restored index
+	 * @throws IOException if the snapshot cannot be read
+	 */
+	static TextIndex readFrom(GraphSnapshot.Input in) throws IOException {
+		TextIndex index = new TextIndex();
+		index.lastOrdinal = in.readInt();
+		int terms = in.readInt();
+		for (int t = 0; t < terms; t++){
+			String term = in.readString();
+			int[] state = in.readInts(3);
+			PostingList list = new PostingList();
+			list.docCount = state[0];
+			list.lastOrdinal = state[1];
+			list.skipCount = state[2];
+			list.docData = in.readBytes();
+			list.docLength = list.docData.length;
+			list.positionData = in.readBytes();
+			list.positionLength = list.positionData.length;
+			list.skipOrdinal = in.readInts(list.skipCount);
+			list.skipDocOffset = in.readInts(list.skipCount);
+			list.skipPositionOffset = in.readInts(list.skipCount);
+			index.postings.put(term, list);
+		}
+		return index;
+	}
+
+	/**
+	 * Finds the reviews matching a query. Only the review ordinals of the
+	 * posting lists are read, starting from the rarest term and skipping
+	 * ahead through the others; positions are decoded only for phrase
+	 * queries, and only for reviews containing every term.
+	 *
+	 * @param query Text whose tokens are the query terms
+	 * @param mode How the terms are combined
+	 * @return ordinals of the matching reviews, ascending
+	 */
+	public int[] search(String query, Mode mode){
+		String[] terms = tokenize(query);
+		if (terms.length == 0){
+			return new int[0];
+		}
+		ArrayList<Cursor> cursors = new ArrayList<Cursor>(terms.length);
+		for (String term : terms){
+			PostingList list = postings.get(term);
+			if (list != null){
+				cursors.add(new Cursor(list));
+			} else if (mode != Mode.ANY){
+				return new int[0];
+			}
+		}
+		Cursor[] lists = cursors.toArray(new Cursor[0]);
+		switch (mode){
+		case ANY:
+			return union(lists);
+		case PHRASE:
+			return intersection(lists, true);
+		default:
+			return intersection(lists, false);
+		}
+	}
+
+	/**
+	 * Splits text into lower-cased runs of letters and digits
+	 *
+	 * @param text Text to split
+	 * @return tokens in order of appearance
+	 */
+	static String[] tokenize(String text){
+		ArrayList<String> tokens = new ArrayList<String>();
+		char[] buf = new char[32];
+		int length = 0;
+		for (int i = 0; i <= text.length(); i++){
+			char c = i < text.length() ? text.charAt(i) : ' ';
+			if (Character.isLetterOrDigit(c)){
+				if (length == buf.length){
+					buf = Arrays.copyOf(buf, length * 2);
+				}
+				buf[length++] = Character.toLowerCase(c);
+			} else if (length > 0){
+				tokens.add(new String(buf, 0, length));
+				length = 0;
+			}
+		}
+		return tokens.toArray(new String[0]);
+	}
+
+	/**
+	 * Reviews containing every term, found by leapfrogging: the rarest
+	 * term proposes each candidate and the others skip ahead to it
+	 *
+	 * @param terms Cursors of the query terms, in query order
+	 * @param phrase Whether the terms must also appear next to each other, in order
+	 */
+	private static int[] intersection(Cursor[] terms, boolean phrase){
+		Cursor[] byRarity = terms.clone();
+		Arrays.sort(byRarity, (a, b) -> Integer.compare(a.list.docCount, b.list.docCount));
+		Cursor lead = byRarity[0];
+		int[] result = new int[Math.min(16, lead.list.docCount)];
+		int n = 0;
+		boolean more = lead.next();
+		while (more){
+			int candidate = lead.ordinal;
+			boolean all = true;
+			for (int i = 1; i < byRarity.length && all; i++){
+				if (!byRarity[i].advance(candidate)){
+					return Arrays.copyOf(result, n);
+				}
+				all = byRarity[i].ordinal == candidate;
+				if (!all){
+					more = lead.advance(byRarity[i].ordinal);
+				}
+			}
+			if (all){
+				if (!phrase || adjacent(terms)){
+					if (n == result.length){
+						result = Arrays.copyOf(result, n * 2);
+					}
+					result[n++] = candidate;
+				}
+				more = lead.next();
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Whether term i appears at position p+i for every term, for some p, in
+	 * the review every cursor is on
+	 */
+	private static boolean adjacent(Cursor[] terms){
+		Cursor first = terms[0];
+		first.decodePositions();
+		for (int p = 0; p < first.positionCount; p++){
+			boolean found = true;
+			for (int i = 1; i < terms.length && found; i++){
+				found = terms[i].hasPosition(first.positions[p] + i);
+			}
+			if (found){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] union(Cursor[] terms){
+		int[] result = new int[0];
+		for (Cursor term : terms){
+			int[] docs = term.ordinals(), merged = new int[result.length + docs.length];
+			int n = 0, a = 0, b = 0;
+			while (a < result.length || b < docs.length){
+				if (b == docs.length || (a < result.length && result[a] < docs[b])){
+					merged[n++] = result[a++];
+				} else if (a == result.length || docs[b] < result[a]){
+					merged[n++] = docs[b++];
+				} else {
+					merged[n++] = result[a++];
+					b++;
+				}
+			}
+			result = Arrays.copyOf(merged, n);
+		}
+		return result;
+	}
+
+	/**
+	 * Compressed postings of one term, in two streams of varints. The
+	 * review stream holds, for each review, the ordinal delta and the byte
+	 * length of its positions; the position stream holds the position
+	 * deltas of each review. Every SKIP_INTERVAL reviews a skip entry
+	 * records the ordinal before the block and where the block starts in
+	 * both streams, so a search can jump over reviews without reading them.
+	 */
+	private static class PostingList {
+		static final int SKIP_INTERVAL = 64;
+		private byte[] docData = new byte[4], positionData = new byte[4];
+		private int docLength = 0, positionLength = 0, docCount = 0, lastOrdinal = -1;
+		private int[] skipOrdinal = new int[0], skipDocOffset = new int[0], skipPositionOffset = new int[0];
+		private int skipCount = 0;
+		/**
+		 * Review whose positions are being written, not yet in the review
+		 * stream; where they start and the last one written
+		 */
+		private int openOrdinal = -1, openStart, lastPosition;
+
+		/**
+		 * Writes an occurrence of the term into the position stream
+		 *
+		 * @return true if it is the first occurrence in the review, which must then be sealed
+		 */
+		boolean add(int ordinal, int position){
+			boolean first = ordinal != openOrdinal;
+			if (first){
+				openOrdinal = ordinal;
+				openStart = positionLength;
+				lastPosition = 0;
+			}
+			positionData = ensure(positionData, positionLength + 5);
+			positionLength = writeVarint(positionData, positionLength, position - lastPosition);
+			lastPosition = position;
+			return first;
+		}
+
+		/**
+		 * Adds the review whose positions were written to the review stream,
+		 * making it visible to searches
+		 */
+		void seal(){
+			if (docCount % SKIP_INTERVAL == 0 && docCount > 0){
+				if (skipCount == skipOrdinal.length){
+					int capacity = Math.max(4, skipCount * 2);
+					skipOrdinal = Arrays.copyOf(skipOrdinal, capacity);
+					skipDocOffset = Arrays.copyOf(skipDocOffset, capacity);
+					skipPositionOffset = Arrays.copyOf(skipPositionOffset, capacity);
+				}
+				skipOrdinal[skipCount] = lastOrdinal;
+				skipDocOffset[skipCount] = docLength;
+				skipPositionOffset[skipCount] = openStart;
+				skipCount++;
+			}
+			docData = ensure(docData, docLength + 10);
+			docLength = writeVarint(docData, docLength, openOrdinal - lastOrdinal);
+			docLength = writeVarint(docData, docLength, positionLength - openStart);
+			lastOrdinal = openOrdinal;
+			docCount++;
+		}
+
+		private static int writeVarint(byte[] data, int length, int value){
+			while ((value & ~0x7F) != 0){
+				data[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			data[length++] = (byte) value;
+			return length;
+		}
+
+		private static byte[] ensure(byte[] data, int capacity){
+			return capacity <= data.length ? data : Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+		}
+
+		void trim(){
+			docData = Arrays.copyOf(docData, docLength);
+			positionData = Arrays.copyOf(positionData, positionLength);
+			skipOrdinal = Arrays.copyOf(skipOrdinal, skipCount);
+			skipDocOffset = Arrays.copyOf(skipDocOffset, skipCount);
+			skipPositionOffset = Arrays.copyOf(skipPositionOffset, skipCount);
+		}
+	}
+
+	/**
+	 * Position of a search in one posting list. Reads the review stream
+	 * forward, jumping through skip entries when advanced, and decodes the
+	 * positions of the review it is on only when asked.
+	 */
+	private static class Cursor {
+		final PostingList list;
+		/** Review the cursor is on: its index in the list and its ordinal */
+		int index = -1, ordinal = -1;
+		private int docOffset = 0, positionStart = 0, positionEnd = 0;
+		/** Positions of the review at decodedIndex */
+		private int[] positions = new int[8];
+		private int positionCount = 0, decodedIndex = -1;
+
+		Cursor(PostingList list){
+			this.list = list;
+		}
+
+		/**
+		 * Moves to the next review
+		 *
+		 * @return false if there are no more reviews
+		 */
+		boolean next(){
+			if (index + 1 >= list.docCount){
+				index = list.docCount;
+				return false;
+			}
+			index++;
+			ordinal += readVarint();
+			positionStart = positionEnd;
+			positionEnd = positionStart + readVarint();
+			return true;
+		}
+
+		/**
+		 * Moves forward to the first review whose ordinal is at least target
+		 *
+		 * @return false if there is none
+		 */
+		boolean advance(int target){
+			if (index >= list.docCount){
+				return false;
+			}
+			if (index >= 0 && ordinal >= target){
+				return true;
+			}
+			// Last skip entry past the current review that starts before target
+			int lo = (index + 1) / PostingList.SKIP_INTERVAL, hi = list.skipCount - 1, skip = -1;
+			while (lo <= hi){
+				int mid = (lo + hi) >>> 1;
+				if (list.skipOrdinal[mid] < target){
+					skip = mid;
+					lo = mid + 1;
+				} else {
+					hi = mid - 1;
+				}
+			}
+			if (skip >= 0){
+				index = (skip + 1) * PostingList.SKIP_INTERVAL - 1;
+				ordinal = list.skipOrdinal[skip];
+				docOffset = list.skipDocOffset[skip];
+				positionEnd = list.skipPositionOffset[skip];
+			}
+			while (next()){
+				if (ordinal >= target){
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Reads the ordinals of every remaining review, without their positions
+		 */
+		int[] ordinals(){
+			int[] ordinals = new int[list.docCount - index - 1];
+			for (int i = 0; next(); i++){
+				ordinals[i] = ordinal;
+			}
+			return ordinals;
+		}
+
+		void decodePositions(){
+			if (decodedIndex == index){
+				return;
+			}
+			positionCount = 0;
+			int position = 0;
+			for (int offset = positionStart; offset < positionEnd;){
+				int delta = 0, shift = 0;
+				byte b;
+				do {
+					b = list.positionData[offset++];
+					delta |= (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				position += delta;
+				if (positionCount == positions.length){
+					positions = Arrays.copyOf(positions, positionCount * 2);
+				}
+				positions[positionCount++] = position;
+			}
+			decodedIndex = index;
+		}
+
+		boolean hasPosition(int position){
+			decodePositions();
+			return Arrays.binarySearch(positions, 0, positionCount, position) >= 0;
+		}
+
+		private int readVarint(){
+			int value = 0, shift = 0;
+			byte b;
+			do {
+				b = list.docData[docOffset++];
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package Model;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Statistics of the summary and text of every review in a Graph, counted
+ * once when the review is added and kept in primitive columns indexed by
+ * the review's ordinal: word counts, CAPITAL WORD count, text length, and
+ * the keywords of a Lexicon found in the text. Rating a stored review
+ * reads them instead of scanning its text again. They are saved with a
+ * graph's snapshot, so a restored graph does not scan every text either.
+ *
+ * @author Ian
+ * @version 1.0
+ * @see RatingKernel
+ * @see Graph
+ *
+ */
+class TextStats {
+	/**
+	 * Lexicon whose keywords were searched for
+	 */
+	private final Lexicon lexicon;
+	private int size = 0;
+	/**
+	 * Words in each summary, -1 where there is none
+	 */
+	private int[] summaryWords;
+	/**
+	 * Words, CAPITAL WORDS and chars in each text, -1 where there is none
+	 */
+	private int[] textWords, capitals, textLength;
+	/**
+	 * Keywords found in each text, in lexicon order, from keywordStart[i] to keywordStart[i+1]
+	 */
+	private int[] keywordStart, keywords;
+
+	private TextStats(Lexicon lexicon, int capacity){
+		this.lexicon = lexicon;
+		summaryWords = new int[capacity];
+		textWords = new int[capacity];
+		capitals = new int[capacity];
+		textLength = new int[capacity];
+		keywordStart = new int[capacity + 1];
+		keywords = new int[Math.max(16, capacity)];
+	}
+
+	/**
+	 * Counts the statistics of the given reviews in parallel
+	 *
+	 * @param reviews Store holding the reviews
+	 * @param lexicon Keywords to search texts for
+	 * @return columns holding the statistics of every review
+	 */
+	static TextStats compute(ReviewStore reviews, Lexicon lexicon){
+		int n = reviews.size();
+		TextStats stats = new TextStats(lexicon, n);
+		int[][] found = new int[n][];
+		IntStream.range(0, n).parallel().forEach(i -> found[i] = stats.measure(i, reviews.summary(i), reviews.text(i)));
+		int total = 0;
+		for (int i = 0; i < n; i++){
+			stats.keywordStart[i] = total;
+			total += found[i].length;
+		}
+		stats.keywordStart[n] = total;
+		stats.keywords = new int[total];
+		for (int i = 0; i < n; i++){
+			System.arraycopy(found[i], 0, stats.keywords, stats.keywordStart[i], found[i].length);
+		}
+		stats.size = n;
+		return stats;
+	}
+
+	/**
+	 * Counts the statistics of the review with the next ordinal
+	 *
+	 * @param reviews Store holding the review
+	 * @param ordinal Position of the review in reviews; the number of reviews already added
+	 */
+	void add(ReviewStore reviews, int ordinal){
+		if (size == textWords.length){
+			int capacity = Math.max(16, size * 2);
+			summaryWords = Arrays.copyOf(summaryWords, capacity);
+			textWords = Arrays.copyOf(textWords, capacity);
+			capitals = Arrays.copyOf(capitals, capacity);
+			textLength = Arrays.copyOf(textLength, capacity);
+			keywordStart = Arrays.copyOf(keywordStart, capacity + 1);
+		}
+		int[] found = measure(size, reviews.summary(ordinal), reviews.text(ordinal));
+		int start = keywordStart[size];
+		if (start + found.length > keywords.length){
+			keywords = Arrays.copyOf(keywords, Math.max(start + found.length, keywords.length * 2));
+		}
+		System.arraycopy(found, 0, keywords, start, found.length);
+		keywordStart[++size] = start + found.length;
+	}
+
+	/**
+	 * Fills in the counts of one review
+	 *
+	 * @return the keywords found in its text
+	 */
+	private int[] measure(int i, String summary, String text){
+		summaryWords[i] = summary == null ? -1 : RatingKernel.countWords(summary);
+		if (text == null){
+			textWords[i] = capitals[i] = textLength[i] = -1;
+			return new int[0];
+		}
+		RatingKernel kernel = RatingKernel.scan(text, lexicon);
+		textWords[i] = kernel.words;
+		capitals[i] = kernel.capitals;
+		textLength[i] = text.length();
+		int[] found = new int[kernel.foundCount()];
+		for (int k = 0; k < found.length; k++){
+			found[k] = kernel.found(k);
+		}
+		return found;
+	}
+
+	/**
+	 * Whether the statistics of a review, with keywords of the given lexicon, are held
+	 *
+	 * @param review A review
+	 * @param keywords Lexicon the review is rated with
+	 * @return true if the review was added and keywords is the lexicon searched for
+	 */
+	boolean holds(Review review, Lexicon keywords){
+		return keywords == lexicon && review.ordinal >= 0 && review.ordinal < size;
+	}
+
+	/**
+	 * Copies the statistics of a held review into a kernel, as if it had scanned the review
+	 *
+	 * @param review A review for which holds is true
+	 * @param kernel Kernel receiving the counts
+	 */
+	void load(Review review, RatingKernel kernel){
+		int i = review.ordinal;
+		kernel.load(summaryWords[i], textWords[i], capitals[i], textLength[i], lexicon, keywords, keywordStart[i], keywordStart[i+1]);
+	}
+
+	/**
+	 * Writes the statistics to a snapshot, after the terms of the lexicon
+	 * searched for
+	 *
+	 * @param out Snapshot being written
+	 * @throws IOException if the snapshot cannot be written
+	 */
+	void writeTo(GraphSnapshot.Output out) throws IOException {
+		out.writeInt(lexicon.size());
+		for (int k = 0; k < lexicon.size(); k++){
+			out.writeString(lexicon.term(k));
+		}
+		out.writeInt(lexicon.wordBoundaries() ? 1 : 0);
+		out.writeInt(size);
+		out.writeInts(summaryWords, size);
+		out.writeInts(textWords, size);
+		out.writeInts(capitals, size);
+		out.writeInts(textLength, size);
+		out.writeInts(keywordStart, size + 1);
+		out.writeInts(keywords, keywordStart[size]);
+	}
+
+	/**
+	 * Reads statistics written by writeTo. Keywords are kept as positions in
+	 * the lexicon, so the statistics are only usable with a lexicon of the
+	 * same terms, matched the same way; their weights may differ.
+	 *
+	 * @param in Snapshot being read
+	 * @param lexicon Lexicon reviews are rated with now
+	 * @return the statistics, searched for lexicon's keywords; null if they were counted for other keywords,
+	 *         in which case the rest of them is left unread
+	 * @throws IOException if the snapshot cannot be read
+	 */
+	static TextStats readFrom(GraphSnapshot.Input in, Lexicon lexicon) throws IOException {
+		int terms = in.readInt();
+		boolean same = terms == lexicon.size();
+		for (int k = 0; k < terms; k++){
+			String term = in.readString();
+			same = same && term.equals(lexicon.term(k));
+		}
+		same = same && (in.readInt() == 1) == lexicon.wordBoundaries();
+		if (!same){
+			return null;
+		}
+		int n = in.readInt();
+		TextStats stats = new TextStats(lexicon, 0);
+		stats.summaryWords = in.readInts(n);
+		stats.textWords = in.readInts(n);
+		stats.capitals = in.readInts(n);
+		stats.textLength = in.readInts(n);
+		stats.keywordStart = in.readInts(n + 1);
+		stats.keywords = in.readInts(stats.keywordStart[n]);
+		stats.size = n;
+		return stats;
+	}
+
+	/**
+	 * Getter for the number of reviews held
+	 *
+	 * @return number of reviews
+	 */
+	int size(){
+		return size;
+	}
+}
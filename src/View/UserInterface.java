@@ -11,13 +11,17 @@ import java.awt.Image;
 import java.awt.ScrollPane;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
+import java.io.File;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.*;
 import javax.swing.text.DefaultCaret;
 
+import Model.EdgeStrategy;
 import Model.Graph;
+import Model.GraphLoadListener;
 import Model.Rater;
 import Model.Review;
 import Model.Reviewer;
@@ -46,13 +50,24 @@ public class UserInterface
 	private static boolean [] clicked;
 	private static JLabel spacer, spacer2, spacer3, spacer4;
 	private static JScrollPane s;
+	private static final String TITLE = "True Review: Industrial Edition";
 
 	private static ButtonListener bs = new ButtonListener ();
 
 	/**
-	 * Pre-constructs all of the UserInterface then begins data processing
+	 * Pre-constructs all of the UserInterface then begins processing foods.txt
 	 */
 	public static void buildGUI ()
+	{
+		buildGUI(new File("foods.txt"), Integer.MAX_VALUE, EdgeStrategy.CLIQUE);
+	}
+	/**
+	 * Pre-constructs all of the UserInterface then begins data processing
+	 * @param dataset File in the labeled record format of the dataset
+	 * @param limit Maximum number of records to read
+	 * @param strategy How reviewers of the same product are connected
+	 */
+	public static void buildGUI (File dataset, int limit, EdgeStrategy strategy)
 	{
 
 		buildProgressBar();
@@ -62,8 +77,63 @@ public class UserInterface
 		buildTopBar();
 		panelSelected[0] =true;//Sets default tab to Product
 
-		g = new Graph ();//Constructs dataset
-		processDone();//Opens up user interface
+		loadGraph(dataset, limit, strategy);//Constructs dataset, or restores it from its snapshot, off the event thread
+	}
+	/**
+	 * Loads the graph in the background. The progress bar follows the load, the main
+	 * user interface opens as soon as the graph is searchable, while the dataset is
+	 * still being read, and the title of the main frame shows the progress until the
+	 * graph is fully loaded
+	 * @param dataset File in the labeled record format of the dataset
+	 * @param limit Maximum number of records to read
+	 * @param strategy How reviewers of the same product are connected
+	 */
+	private static void loadGraph (File dataset, int limit, EdgeStrategy strategy)
+	{
+		new SwingWorker<Graph, Double>()
+		{
+			@Override
+			protected Graph doInBackground () throws Exception
+			{
+				return Graph.open (dataset, limit, strategy, new GraphLoadListener()
+				{
+					@Override
+					public void progress (double fraction)
+					{
+						publish(fraction);
+					}
+					@Override
+					public void searchable (Graph graph)
+					{
+						SwingUtilities.invokeLater(() -> {
+							g = graph;
+							processDone();//Opens up user interface
+						});
+					}
+				});
+			}
+			@Override
+			protected void process (List<Double> fractions)
+			{
+				double latest = fractions.get(fractions.size()-1);
+				if (g == null) updateProgressBar(latest);
+				else frame.setTitle(TITLE + " (loading " + (int)(latest*100) + "%)");
+			}
+			@Override
+			protected void done ()
+			{
+				try
+				{
+					get();
+					frame.setTitle(TITLE);
+				}
+				catch (InterruptedException | ExecutionException e)
+				{
+					System.out.println("Loading failed: " + e.getMessage());
+					JOptionPane.showMessageDialog(frame, "Loading failed: " + (e.getCause() == null ? e : e.getCause()).getMessage());
+				}
+			}
+		}.execute();
 	}
 	/**
 	 * Builds the loading bar
@@ -113,7 +183,7 @@ public class UserInterface
 	{
 		frame.dispose(); // terminate the progress bar
 		
-		frame = new JFrame ("True Review: Industrial Edition");
+		frame = new JFrame (TITLE);
 		frame.setSize(700, 500);
 		submit = new JButton ("Submit");
 		submit.addActionListener(bs);
@@ -399,11 +469,11 @@ public class UserInterface
 				summTitle = new JLabel("Summary:");
 				summText = new JTextField ();
 				summText.setPreferredSize(new Dimension (200,30));
-				summText.setText (a[a.length-1-i].summary);
+				summText.setText (a[a.length-1-i].getSummary());
 
 				revTitle = new JLabel("Review:");
 				ta = new JTextArea(5,20);
-				ta.setText (a[a.length-1-i].text);
+				ta.setText (a[a.length-1-i].getText());
 
 				s = new JScrollPane(ta,JScrollPane.VERTICAL_SCROLLBAR_ALWAYS, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
 
@@ -426,11 +496,11 @@ public class UserInterface
 			res.setSize(700, 500);
 			JPanel p = new JPanel ();
 			p.setBackground(Color.WHITE);
-			ArrayList<Review> a = b.reviews;
+			Review[] a = b.getReviews();
 			
-			a.sort(null);
+			Arrays.sort(a);
 			JScrollPane scr = new JScrollPane(p,JScrollPane.VERTICAL_SCROLLBAR_ALWAYS, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-			for (int i = 0; i < a.size() && i < 3;i++)
+			for (int i = 0; i < a.length && i < 3;i++)
 			{
 				
 				spacers(true); // using spaces for readability
@@ -438,27 +508,27 @@ public class UserInterface
 				nameTitle = new JLabel("UserID: ");
 				nameText = new JTextField (10);
 				nameText.setPreferredSize(new Dimension (200,30));
-				nameText.setText (a.get(a.size()-1-i).userId);
+				nameText.setText (a[a.length-1-i].userId);
 
 				helpTitle = new JLabel("Helpfulness:");
 				helpfulText = new JTextField ();
 				helpfulText.setPreferredSize(new Dimension (200,30));
 				String help;
-				if (a.get(a.size()-1-i).helpfulness == (-1))
+				if (a[a.length-1-i].helpfulness == (-1))
 				{
 					help = "No Rating";
 				}
-				else help = "" + a.get(a.size()-1-i).helpfulness;
+				else help = "" + a[a.length-1-i].helpfulness;
 				helpfulText.setText (help);
 
 				summTitle = new JLabel("Summary:");
 				summText = new JTextField ();
 				summText.setPreferredSize(new Dimension (200,30));
-				summText.setText (a.get(a.size()-1-i).summary);
+				summText.setText (a[a.length-1-i].getSummary());
 
 				revTitle = new JLabel("Review:");
 				ta = new JTextArea(5,20);
-				ta.setText (a.get(a.size()-1-i).text);
+				ta.setText (a[a.length-1-i].getText());
 
 				s = new JScrollPane(ta,JScrollPane.VERTICAL_SCROLLBAR_ALWAYS, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
 
@@ -492,14 +562,19 @@ public class UserInterface
 			String reviewText = ta.getText();
 			if (reviewText.equals("What did you think about the product?")) reviewText = null;
 			
-			//Generates a rating for the review
-			Rater r = new Rater  (g,userID,help,summary,reviewText);
 			//Makes a new frame to display results
 			JFrame res = new JFrame ("True Review: Results");
 			res.setSize(250, 70);
 			JPanel p = new JPanel ();
 			p.setBackground(Color.WHITE);
-			JLabel t = new JLabel("Review Strength: " + r.getRating());
+			JLabel t;
+			if (g.isLoaded())
+			{
+				//Generates a rating for the review
+				Rater r = new Rater  (g,userID,help,summary,reviewText);
+				t = new JLabel("Review Strength: " + r.getRating());
+			}
+			else t = new JLabel("Still loading, try again shortly");//Ratings need final accuracies
 
 			p.add(t);
 			res.add(p);